@@ -28,6 +28,7 @@ public class UlindaApplication implements CommandLineRunner {
         startupService.runStartup();
         log.info("Loading Demo Data...");
         startupService.loadDemoData();
+        startupService.loadMetadata();
         log.info("Completed Starting Up Service");
     }
 }
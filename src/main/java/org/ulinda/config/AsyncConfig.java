@@ -16,32 +16,19 @@ import java.util.concurrent.Executor;
 public class AsyncConfig implements AsyncConfigurer {
 
     /**
-     * Custom thread pool for async operations
+     * Single thread for field index builds, so builds and drops of the same index run in order
      */
-    @Bean(name = "errorLogExecutor")
-    public Executor errorLogExecutor() {
+    @Bean(name = "indexBuildExecutor")
+    public Executor indexBuildExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);        // Minimum threads
-        executor.setMaxPoolSize(5);         // Maximum threads
-        executor.setQueueCapacity(100);     // Queue size before creating new threads
-        executor.setThreadNamePrefix("error-log-");
-        executor.setKeepAliveSeconds(60);   // How long excess threads stay alive
-        executor.setRejectedExecutionHandler((r, executor1) -> {
-            log.warn("Error log task rejected, queue is full. Executing synchronously.");
-            r.run(); // Execute synchronously as fallback
-        });
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("index-build-");
         executor.initialize();
         return executor;
     }
 
-    /**
-     * Default async executor
-     */
-    @Override
-    public Executor getAsyncExecutor() {
-        return errorLogExecutor();
-    }
-
     /**
      * Handle uncaught exceptions in async methods
      */
@@ -1,14 +1,149 @@
 package org.ulinda.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.ulinda.services.ClusterSettingsService;
 
+import java.util.function.IntSupplier;
+
+/**
+ * BCrypt encoders for user passwords and for API tokens. Unless a fixed strength is configured, the password
+ * strength is calibrated to the target hashing time by the first node that needs it, and stored in
+ * cluster_settings; every node uses that one strength, so a login on another node does not rehash the password
+ * again. Delete the password.bcrypt-strength setting to calibrate again, for example after a hardware change.
+ * API tokens are long random strings, so they use a cheaper, fixed strength.
+ */
 @Configuration
+@Slf4j
 public class PasswordEncoderConfig {
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+    private static final int CALIBRATION_ROUNDS = 3;
+    private static final String STRENGTH_SETTING = "password.bcrypt-strength";
+
+    @Autowired
+    private ClusterSettingsService clusterSettingsService;
+
+    // 0 calibrates the strength
+    @Value("${ulinda.password.bcrypt-strength:0}")
+    private int passwordStrength;
+
+    @Value("${ulinda.password.hash-target-ms:250}")
+    private long hashTargetMs;
+
+    @Value("${ulinda.password.bcrypt-min-strength:10}")
+    private int minStrength;
+
+    @Value("${ulinda.password.bcrypt-max-strength:16}")
+    private int maxStrength;
+
+    @Value("${ulinda.token.bcrypt-strength:8}")
+    private int tokenStrength;
+
     @Bean
+    @Primary
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new StrengthMatchingPasswordEncoder(() -> {
+            int strength = passwordStrength > 0 ? passwordStrength
+                    : Integer.parseInt(clusterSettingsService.getOrCreate(STRENGTH_SETTING, () -> String.valueOf(calibrate())));
+            log.info("Password hashing uses BCrypt strength {}", strength);
+            return strength;
+        });
+    }
+
+    @Bean
+    public PasswordEncoder tokenEncoder() {
+        return new StrengthMatchingPasswordEncoder(() -> tokenStrength);
+    }
+
+    /**
+     * Returns the highest strength, within the configured bounds, whose hashing time stays within the target.
+     * Each strength step doubles the work, so one measurement at the minimum strength predicts the others.
+     */
+    private int calibrate() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        // The first hash also warms up the code
+        String hash = encoder.encode(CALIBRATION_PASSWORD);
+        long fastestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = System.nanoTime();
+            encoder.matches(CALIBRATION_PASSWORD, hash);
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+
+        double hashMs = fastestNanos / 1_000_000.0;
+        int strength = minStrength;
+        while (strength < maxStrength && hashMs * 2 <= hashTargetMs) {
+            hashMs *= 2;
+            strength++;
+        }
+        log.info("BCrypt strength {} takes {} ms, calibrated to strength {} for a target of {} ms",
+                minStrength, String.format("%.1f", fastestNanos / 1_000_000.0), strength, hashTargetMs);
+        return strength;
+    }
+
+    /**
+     * Reports a hash for re-encoding whenever its strength differs from the configured one, in either
+     * direction; {@link BCryptPasswordEncoder} only reports weaker hashes. The strength is resolved on first
+     * use, after startup has created the settings table.
+     */
+    static class StrengthMatchingPasswordEncoder implements PasswordEncoder {
+
+        private final IntSupplier strengthSupplier;
+        private volatile BCryptPasswordEncoder encoder;
+        private volatile int strength;
+
+        StrengthMatchingPasswordEncoder(IntSupplier strengthSupplier) {
+            this.strengthSupplier = strengthSupplier;
+        }
+
+        private BCryptPasswordEncoder getEncoder() {
+            BCryptPasswordEncoder current = encoder;
+            if (current == null) {
+                synchronized (this) {
+                    current = encoder;
+                    if (current == null) {
+                        strength = strengthSupplier.getAsInt();
+                        current = new BCryptPasswordEncoder(strength);
+                        encoder = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        private int getStrength() {
+            getEncoder();
+            return strength;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return getEncoder().encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return getEncoder().matches(rawPassword, encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            // $2a$10$... : the strength is the two digits after the version
+            if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(3) != '$') {
+                return false;
+            }
+            try {
+                return Integer.parseInt(encodedPassword.substring(4, 6)) != getStrength();
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
     }
 }
@@ -1,5 +1,6 @@
 package org.ulinda.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,7 +10,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -17,6 +17,8 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.ulinda.repositories.CurrentUserTokenRepository;
 import org.ulinda.security.AuthenticationFilter;
+import org.ulinda.services.ApiTokenCache;
+import org.ulinda.services.PasswordHashingService;
 import org.ulinda.services.SessionService;
 import org.ulinda.services.UserService;
 
@@ -33,13 +35,15 @@ public class SecurityConfig {
     private final UserService userService;
     private final SessionService sessionService;
     private final CurrentUserTokenRepository currentUserTokenRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final ApiTokenCache apiTokenCache;
 
-    public SecurityConfig(UserService userService, SessionService sessionService, CurrentUserTokenRepository currentUserTokenRepository, PasswordEncoder passwordEncoder) {
+    public SecurityConfig(UserService userService, SessionService sessionService, CurrentUserTokenRepository currentUserTokenRepository, PasswordHashingService passwordHashingService, ApiTokenCache apiTokenCache) {
         this.userService = userService;
         this.sessionService = sessionService;
         this.currentUserTokenRepository = currentUserTokenRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.apiTokenCache = apiTokenCache;
     }
 
 
@@ -51,10 +55,12 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Streamed responses finish on an async dispatch of an already authorized request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(new AuthenticationFilter(userService, sessionService, currentUserTokenRepository, passwordEncoder), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new AuthenticationFilter(userService, sessionService, currentUserTokenRepository, passwordHashingService, apiTokenCache), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
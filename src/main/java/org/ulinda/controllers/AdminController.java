@@ -11,17 +11,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.ulinda.dto.*;
-import org.ulinda.entities.ErrorLog;
 import org.ulinda.entities.SecuritySettings;
 import org.ulinda.services.ErrorService;
+import org.ulinda.services.JobCoordinator;
+import org.ulinda.services.PasswordHashingService;
 import org.ulinda.services.SecuritySettingsService;
 import org.ulinda.services.TokenService;
 import org.ulinda.services.UserService;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -41,6 +42,12 @@ public class AdminController {
     @Autowired
     private TokenService tokenService;
 
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
     @GetMapping("/users")
     public ResponseEntity<GetUsersResponse> getUsers() {
         GetUsersResponse response = new GetUsersResponse();
@@ -75,35 +82,27 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    // Errors grouped by fingerprint, with the identifiers of their sampled occurrences
     @GetMapping("/errors")
-    public ResponseEntity<GetErrorsResponse> getErrors(
+    public ResponseEntity<GetErrorFingerprintsResponse> getErrorFingerprints(
             @RequestParam(defaultValue = "0") int pageNumber,
             @RequestParam(defaultValue = "5") int size) {
+        return ResponseEntity.ok(errorService.getErrorFingerprints(pageNumber, size));
+    }
 
-        Pageable pageable = PageRequest.of(pageNumber, size);
-        Page<ErrorLog> errors = errorService.getErrors(pageable);
-
-        GetErrorsResponse response = new GetErrorsResponse();
-
-        // Convert ErrorLog entities to ErrorDto
-        List<ErrorDto> errorDtos = errors.getContent()
-                .stream()
-                .map(this::convertToDto)  // or use a mapper service
-                .collect(Collectors.toList());
-
-        // Set the converted errors
-        response.setErrors(errorDtos);
-
-        // Set pagination info
-        response.setPagingInfo(new ErrorPagingInfo(errors));
-
-        return ResponseEntity.ok(response);
+    @GetMapping("/errors/occurrences")
+    public ResponseEntity<GetErrorsResponse> getErrors(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "5") int size) {
+        return ResponseEntity.ok(errorService.getErrors(cursor, size));
     }
 
+    // Only sampled occurrences are stored: other identifiers get an ERROR_NOT_SAMPLED error
     @GetMapping("/error/{errorIdentifier}")
     public ResponseEntity<ErrorDetailDto> getError(
-            @PathVariable UUID errorIdentifier) {
-        return ResponseEntity.ok(errorService.getErrorDetail(errorIdentifier));
+            @PathVariable UUID errorIdentifier,
+            @RequestParam(required = false) Instant at) {
+        return ResponseEntity.ok(errorService.getErrorDetail(errorIdentifier, at));
     }
 
     @GetMapping("/security-settings")
@@ -137,18 +136,22 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
-    // Helper method to convert ErrorLog to ErrorDto
-    private ErrorDto convertToDto(ErrorLog errorLog) {
-        ErrorDto dto = new ErrorDto();
-        dto.setErrorIdentifier(errorLog.getErrorIdentifier());
-        dto.setMessage(errorLog.getMessage());
-        dto.setTimestamp(errorLog.getTimestamp());
-        // Map other fields as needed
-        return dto;
+    @GetMapping("/error-log-writer")
+    public ResponseEntity<ErrorLogWriterStatsDto> getErrorLogWriterStats() {
+        return ResponseEntity.ok(errorService.getErrorLogWriterStats());
     }
 
+    @GetMapping("/hashing")
+    public ResponseEntity<HashingStatsDto> getHashingStats() {
+        return ResponseEntity.ok(passwordHashingService.getStats());
+    }
 
-}
+    @GetMapping("/jobs")
+    public ResponseEntity<List<JobStatusDto>> getJobStatuses() {
+        return ResponseEntity.ok(jobCoordinator.getJobStatuses());
+    }
 
 
+}
+
 
@@ -14,6 +14,7 @@ import org.ulinda.dto.*;
 import org.ulinda.entities.User;
 import org.ulinda.exceptions.ErrorCode;
 import org.ulinda.exceptions.FrontendException;
+import org.ulinda.services.LoginService;
 import org.ulinda.services.SecuritySettingsService;
 import org.ulinda.services.SessionService;
 import org.ulinda.services.UserService;
@@ -29,6 +30,7 @@ public class AuthController {
     private final UserService userService;
     private final SessionService sessionService;
     private final SecuritySettingsService securitySettingsService;
+    private final LoginService loginService;
 
     @Value("${ulinda.cookie.secure:false}")
     private boolean cookieSecure;
@@ -38,10 +40,12 @@ public class AuthController {
 
     public AuthController(UserService userService,
                           SessionService sessionService,
-                          SecuritySettingsService securitySettingsService) {
+                          SecuritySettingsService securitySettingsService,
+                          LoginService loginService) {
         this.userService = userService;
         this.sessionService = sessionService;
         this.securitySettingsService = securitySettingsService;
+        this.loginService = loginService;
     }
 
 
@@ -52,55 +56,26 @@ public class AuthController {
     public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest loginRequest,
                                                 HttpServletRequest request,
                                                 HttpServletResponse response) {
-        String username = loginRequest.getUsername();
-
-        // Check if account is locked
-        if (userService.isAccountLocked(username)) {
-            throw new FrontendException("Account is temporarily locked due to too many failed login attempts. Please try again later.", ErrorCode.ACCOUNT_LOCKED, true);
-        }
-
-        if (userService.validateUser(username, loginRequest.getPassword())) {
-            // Reset failed login attempts on successful login
-            userService.resetFailedLoginAttempts(username);
-
-            UUID userId = userService.getUserId(username);
-            //Check if user must change password
-            GetUserResponse user = userService.getUser(userId);
-            if (user.isMustChangePassword()) {
-                throw new FrontendException("User must change password", ErrorCode.USER_MUST_CHANGE_PASSWORD, true);
-            }
-
-            // Check if password has expired
-            if (userService.isPasswordExpired(userId)) {
-                throw new FrontendException("Your password has expired. Please change your password.", ErrorCode.USER_MUST_CHANGE_PASSWORD, true);
-            }
-
-            // Get client IP address
-            String ipAddress = getClientIpAddress(request);
-
-            // Create session in database
-            UUID sessionId = sessionService.createSession(userId, ipAddress);
-
-            // Create secure cookie
-            Cookie sessionCookie = new Cookie("SESSION_ID", sessionId.toString());
-            sessionCookie.setHttpOnly(true);
-            sessionCookie.setSecure(cookieSecure);
-            sessionCookie.setPath("/");
-            sessionCookie.setMaxAge(Math.toIntExact(securitySettingsService.getSessionTimeoutMinutes() * 60)); // Convert ms to seconds
-            sessionCookie.setAttribute("SameSite", cookieSameSite);
-            response.addCookie(sessionCookie);
-
-            // Return response without token
-            LoginResponse loginResponse = new LoginResponse();
-            loginResponse.setAdminUser(user.isAdminUser());
-            loginResponse.setCanGenerateTokens(user.isCanGenerateTokens());
-            loginResponse.setMaxTokenCount(user.getMaxTokenCount());
-            return ResponseEntity.ok(loginResponse);
-        } else {
-            // Increment failed login attempts
-            userService.incrementFailedLoginAttempts(username);
-            throw new FrontendException("Invalid Credentials", ErrorCode.INVALID_LOGIN_CREDENTIALS, true);
-        }
+        // Checks the lockout and the credentials, and creates the session in database
+        LoginService.LoginResult loginResult = loginService.login(loginRequest.getUsername(), loginRequest.getPassword(),
+                getClientIpAddress(request));
+        User user = loginResult.user();
+
+        // Create secure cookie
+        Cookie sessionCookie = new Cookie("SESSION_ID", loginResult.sessionId().toString());
+        sessionCookie.setHttpOnly(true);
+        sessionCookie.setSecure(cookieSecure);
+        sessionCookie.setPath("/");
+        sessionCookie.setMaxAge(Math.toIntExact(securitySettingsService.getSessionTimeoutMinutes() * 60)); // Convert ms to seconds
+        sessionCookie.setAttribute("SameSite", cookieSameSite);
+        response.addCookie(sessionCookie);
+
+        // Return response without token
+        LoginResponse loginResponse = new LoginResponse();
+        loginResponse.setAdminUser(user.isAdminUser());
+        loginResponse.setCanGenerateTokens(user.isCanGenerateTokens());
+        loginResponse.setMaxTokenCount(user.getMaxTokenCount());
+        return ResponseEntity.ok(loginResponse);
     }
 
     private String getClientIpAddress(HttpServletRequest request) {
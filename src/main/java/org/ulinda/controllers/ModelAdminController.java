@@ -10,8 +10,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.ulinda.dto.*;
 import org.ulinda.security.AuthenticationHelper;
+import org.ulinda.services.IndexAdvisorService;
 import org.ulinda.services.ModelService;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -23,6 +25,9 @@ public class ModelAdminController {
     @Autowired
     private ModelService modelService;
 
+    @Autowired
+    private IndexAdvisorService indexAdvisorService;
+
     @Autowired
     private AuthenticationHelper authenticationHelper;
 
@@ -84,4 +89,24 @@ public class ModelAdminController {
     public ResponseEntity<GetModelLinksResponse> getLinkedModels() {
         return ResponseEntity.ok(modelService.getModelLinks());
     }
+
+    @GetMapping("/fields/indexes")
+    public ResponseEntity<List<FieldIndexStatusDto>> getFieldIndexStatuses() {
+        return ResponseEntity.ok(modelService.getFieldIndexStatuses());
+    }
+
+    @GetMapping("/fields/index-recommendations")
+    public ResponseEntity<List<IndexRecommendationDto>> getIndexRecommendations() {
+        return ResponseEntity.ok(indexAdvisorService.getRecommendations());
+    }
+
+    @GetMapping("/models/permission-cache")
+    public ResponseEntity<PermissionCacheStatsDto> getPermissionCacheStats() {
+        return ResponseEntity.ok(modelService.getPermissionCacheStats());
+    }
+
+    @GetMapping("/models/query-plan-cache")
+    public ResponseEntity<QueryPlanCacheStatsDto> getQueryPlanCacheStats() {
+        return ResponseEntity.ok(modelService.getQueryPlanCacheStats());
+    }
 }
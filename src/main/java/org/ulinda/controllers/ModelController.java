@@ -3,15 +3,23 @@ package org.ulinda.controllers;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.ulinda.dto.*;
+import org.ulinda.enums.ExportFormat;
 import org.ulinda.security.AuthenticationHelper;
 import org.ulinda.services.ModelService;
+import org.ulinda.services.RecordExport;
+import org.ulinda.services.RecordExportService;
+import org.ulinda.services.SearchIndexService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 @RestController
@@ -22,6 +30,12 @@ public class ModelController {
     @Autowired
     private ModelService modelService;
 
+    @Autowired
+    private RecordExportService recordExportService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
     @Autowired
     private AuthenticationHelper authenticationHelper;
 
@@ -76,6 +90,15 @@ public class ModelController {
         modelService.deleteRecord(userId, modelId, recordId, overrideLinkedModelsError);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<GlobalSearchResponse> search(@RequestParam("q") String query,
+                                                       @RequestParam(defaultValue = "5") int hitsPerModel,
+                                                       Authentication authentication) {
+        UUID userId = authenticationHelper.getUserId(authentication);
+        GlobalSearchResponse response = searchIndexService.search(userId, query, hitsPerModel);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/models/{modelId}/records/search")
     public ResponseEntity<GetRecordsResponse> getRecords(
             @PathVariable UUID modelId,
@@ -86,6 +109,30 @@ public class ModelController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/models/{modelId}/records/export")
+    public ResponseEntity<StreamingResponseBody> exportRecords(
+            @PathVariable UUID modelId,
+            @Valid @RequestBody ExportRecordsRequest request,
+            Authentication authentication) {
+        UUID userId = authenticationHelper.getUserId(authentication);
+        RecordExport export = modelService.prepareRecordExport(userId, modelId, request);
+
+        String fileName = "records-" + modelId + (request.getFormat() == ExportFormat.CSV ? ".csv" : ".ndjson");
+        MediaType contentType = request.getFormat() == ExportFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson");
+        if (request.isGzip()) {
+            fileName += ".gz";
+            contentType = new MediaType("application", "gzip");
+        }
+
+        StreamingResponseBody body = outputStream -> recordExportService.writeExport(export, outputStream);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+
     @DeleteMapping("/model/linked-records/{modelLinkId}/{linkId}")
     public void deleteLink(@PathVariable UUID modelLinkId, @PathVariable UUID linkId, Authentication authentication) {
         UUID userId = authenticationHelper.getUserId(authentication);
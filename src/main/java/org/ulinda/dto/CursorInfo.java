@@ -14,8 +14,9 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CursorInfo {
-    private String sortFieldValue; // The value of the field we're sorting by (as string)
+    private Object sortFieldValue; // The value of the field we're sorting by, as read into the record; null for a null value
     private UUID recordId;        // The ID of the record (tie-breaker)
     private String sortField;     // The field name/column we're sorting by
     private String sortOrder;     // ASC or DESC
+    private Boolean nullsLast;    // Whether null sort values come last in sortOrder (true for ASC)
 }
\ No newline at end of file
@@ -1,13 +1,17 @@
 package org.ulinda.dto;
 
 import lombok.Data;
+import org.ulinda.exceptions.ErrorCode;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Data
 public class ErrorDto {
+    private UUID id;
     private UUID errorIdentifier;
     private Instant timestamp;
     private String message;
+    private ErrorCode errorCode;
+    private String fingerprint;
 }
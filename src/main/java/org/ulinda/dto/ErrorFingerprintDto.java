@@ -0,0 +1,21 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+import org.ulinda.exceptions.ErrorCode;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class ErrorFingerprintDto {
+    private String fingerprint;
+    private String exceptionType;
+    private ErrorCode errorCode;
+    private String message;     // Message of the last occurrence
+    private long occurrences;
+    private Instant firstSeen;
+    private Instant lastSeen;
+    private List<UUID> sampleErrorIdentifiers = new ArrayList<>();  // Newest first; only these occurrences have details
+}
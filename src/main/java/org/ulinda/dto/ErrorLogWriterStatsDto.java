@@ -0,0 +1,12 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+@Data
+public class ErrorLogWriterStatsDto {
+    private int queued;
+    private int bufferSize;
+    private long written;
+    private long dropped;   // Oldest errors dropped because the buffer was full
+    private long failed;    // Errors in batches the database rejected
+}
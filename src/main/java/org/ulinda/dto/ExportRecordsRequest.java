@@ -0,0 +1,18 @@
+package org.ulinda.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.ulinda.enums.ExportFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ExportRecordsRequest {
+    @NotNull
+    private ExportFormat format = ExportFormat.NDJSON;
+    private boolean gzip = false;
+    @Valid
+    private List<SearchParameter> searchParameters = new ArrayList<>();
+}
@@ -17,4 +17,6 @@ public class FieldDto {
     private String description;
     @JsonProperty("isRequired")
     private Boolean isRequired = false;
+    @JsonProperty("isIndexed")
+    private Boolean isIndexed = false;
 }
@@ -0,0 +1,24 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+import org.ulinda.enums.IndexBuildState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class FieldIndexStatusDto {
+    private UUID fieldId;
+    private UUID modelId;
+    private String fieldName;
+    private List<String> indexNames = new ArrayList<>();
+    private IndexBuildState state;
+    private String error;
+    // Progress of a running build, from pg_stat_progress_create_index
+    private String phase;
+    private Long blocksDone;
+    private Long blocksTotal;
+    private Long tuplesDone;
+    private Long tuplesTotal;
+}
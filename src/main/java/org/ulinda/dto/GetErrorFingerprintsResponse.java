@@ -0,0 +1,11 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GetErrorFingerprintsResponse {
+    private List<ErrorFingerprintDto> fingerprints;
+    private ErrorPagingInfo pagingInfo;
+}
@@ -7,5 +7,5 @@ import java.util.List;
 @Data
 public class GetErrorsResponse {
     private List<ErrorDto> errors;
-    private ErrorPagingInfo pagingInfo;
+    private String nextCursor;  // Null on the last page
 }
@@ -3,6 +3,7 @@ package org.ulinda.dto;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import org.ulinda.enums.CountMode;
 import org.ulinda.enums.QueryType;
 
 import java.util.ArrayList;
@@ -22,6 +23,7 @@ public class GetRecordsRequest {
     private QueryType queryType;
     private UUID modelLinkId;
     private UUID sourceRecordId;
+    private CountMode countMode = CountMode.EXACT;
 }
 
 
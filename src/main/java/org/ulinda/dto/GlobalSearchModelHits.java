@@ -0,0 +1,15 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class GlobalSearchModelHits {
+    private UUID modelId;
+    private String modelName;
+    private List<FieldDto> fields = new ArrayList<>();
+    private List<RecordDto> records = new ArrayList<>(); // Best match first, with the search rank set
+}
@@ -0,0 +1,11 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class GlobalSearchResponse {
+    private List<GlobalSearchModelHits> models = new ArrayList<>();
+}
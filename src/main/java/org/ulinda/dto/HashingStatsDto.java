@@ -0,0 +1,15 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+@Data
+public class HashingStatsDto {
+    private int threads;
+    private int active;
+    private int queued;
+    private int queueSize;
+    private long hashed;
+    private long rejected;              // Requests turned away because the queue was full
+    private double averageHashMs;
+    private double averageQueueWaitMs;
+}
@@ -0,0 +1,23 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class IndexRecommendationDto {
+    private UUID modelId;
+    private UUID fieldId;
+    private String fieldName;
+    private List<String> usages = new ArrayList<>(); // SORT and/or the search types used on the field
+    private long queryCount;
+    private double averageQueryMs;
+    private long tableRows;
+    private long tableBytes;
+    private long seqScans;
+    private long indexScans;
+    private long estimatedSavedMs; // Estimated query time an index would have saved over the observed queries
+    private boolean autoCreated;
+}
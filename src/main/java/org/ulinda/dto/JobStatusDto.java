@@ -0,0 +1,22 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+import org.ulinda.enums.JobOutcome;
+
+import java.time.Instant;
+
+@Data
+public class JobStatusDto {
+    private String jobName;
+    private String nodeId;
+    private Instant lastStartedAt;
+    private Instant lastFinishedAt;
+    private Long lastDurationMs;
+    private JobOutcome lastOutcome;
+    private String lastError;
+    private long runCount;
+    private long failureCount;
+    // Items processed, only recorded by jobs that count them
+    private Long lastProcessed;
+    private long totalProcessed;
+}
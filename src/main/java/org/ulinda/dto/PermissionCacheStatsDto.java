@@ -0,0 +1,16 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+@Data
+public class PermissionCacheStatsDto {
+    private long checks;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long savedQueries; // Queries the uncached permission check would have run, minus the snapshot loads
+    private long requests; // Requests that checked a permission
+    private double savedQueriesPerRequest;
+    private int size;
+    private int maxSize;
+}
@@ -0,0 +1,11 @@
+package org.ulinda.dto;
+
+import lombok.Data;
+
+@Data
+public class QueryPlanCacheStatsDto {
+    private long hits;
+    private long misses;
+    private int size;
+    private int maxSize;
+}
@@ -13,4 +13,5 @@ public class RecordDto {
     private Map<UUID, Object> fieldValues;
     private List<LinkedRecordCount> linkedRecordCounts;
     private UUID linkId;
+    private Float searchRank; // Full text search rank, only set for FULL_TEXT searches
 }
\ No newline at end of file
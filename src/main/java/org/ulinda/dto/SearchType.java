@@ -21,5 +21,6 @@ public enum SearchType {
     DECIMAL_LESS_THAN,
     LONG_EQUALS,
     LONG_GREATER_THAN,
-    LONG_LESS_THAN
+    LONG_LESS_THAN,
+    FULL_TEXT          // Searches all text fields of the model, the search field identifier is ignored
 }
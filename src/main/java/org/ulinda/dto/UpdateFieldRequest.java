@@ -12,4 +12,6 @@ public class UpdateFieldRequest {
     private String description;
     @JsonProperty("isRequired")
     private boolean isRequired = false;
+    @JsonProperty("isIndexed")
+    private Boolean isIndexed; // Unchanged when null
 }
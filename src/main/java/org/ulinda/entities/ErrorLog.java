@@ -29,4 +29,7 @@ public class ErrorLog {
 
     @Column("error_code")
     private ErrorCode errorCode;
+
+    @Column("fingerprint")
+    private String fingerprint;
 }
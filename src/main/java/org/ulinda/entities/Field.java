@@ -53,6 +53,9 @@ public class Field {
     @Column("is_required")
     private Boolean isRequired;
 
+    @Column("is_indexed")
+    private Boolean isIndexed = false;
+
     // Constructor for creating new fields (without ID and timestamps)
     public Field(String name, String description, FieldType type) {
         this.name = name;
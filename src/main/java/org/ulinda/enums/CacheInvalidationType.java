@@ -0,0 +1,9 @@
+package org.ulinda.enums;
+
+public enum CacheInvalidationType {
+    MODEL_METADATA,    // Models, fields and model links
+    QUERY_PLANS,       // Compiled record queries of one model
+    USER_PERMISSIONS,  // Permission snapshot of one user, or of all users
+    API_TOKENS,        // Verified API token, by token id
+    SECURITY_SETTINGS  // The security settings row
+}
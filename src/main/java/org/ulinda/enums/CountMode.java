@@ -0,0 +1,7 @@
+package org.ulinda.enums;
+
+public enum CountMode {
+    NONE,       // Skip counting
+    ESTIMATED,  // Planner estimate (pg_class.reltuples / EXPLAIN)
+    EXACT       // COUNT(*) bounded by a statement timeout, falls back to ESTIMATED
+}
@@ -0,0 +1,6 @@
+package org.ulinda.enums;
+
+public enum ExportFormat {
+    NDJSON,  // One JSON record per line
+    CSV
+}
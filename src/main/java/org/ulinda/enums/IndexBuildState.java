@@ -0,0 +1,10 @@
+package org.ulinda.enums;
+
+public enum IndexBuildState {
+    QUEUED,    // Waiting for the index build executor
+    BUILDING,  // CREATE INDEX CONCURRENTLY running
+    READY,     // All indexes of the field exist and are valid
+    FAILED,    // Last build failed, see error
+    INVALID,   // An index exists but is not valid (interrupted concurrent build)
+    MISSING    // Field is marked indexed but has no index
+}
@@ -0,0 +1,7 @@
+package org.ulinda.enums;
+
+public enum JobOutcome {
+    RUNNING,    // Started and not finished, or the node died while running it
+    SUCCEEDED,
+    FAILED      // Threw an exception, see error
+}
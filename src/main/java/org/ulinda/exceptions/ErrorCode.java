@@ -18,5 +18,7 @@ public enum ErrorCode {
     LOGOUT_FAILED,
     UNAUTHORIZED,
     SOURCE_RECORD_MAX_LINK_COUNT_EXCEEDED,
-    TARGET_RECORD_MAX_LINK_COUNT_EXCEEDED
+    TARGET_RECORD_MAX_LINK_COUNT_EXCEEDED,
+    SERVER_BUSY,
+    ERROR_NOT_SAMPLED
 }
@@ -3,6 +3,7 @@ package org.ulinda.exceptions;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -55,6 +56,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
 
+    @ExceptionHandler(ServerBusyException.class)
+    public ResponseEntity<ErrorResponse> handleServerBusyException(ServerBusyException e) {
+        // Not saved to the database: under overload that would only add load
+        log.warn("Server busy: {}", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.setMessage(e.getMessage());
+        error.setShowMessageToUser(e.isShowMessageToUser());
+        error.setErrorCode(e.getErrorCode());
+        error.setTimestamp(Instant.now());
+        error.setErrorIdentifier(UUID.randomUUID());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ValidationErrorResponse> handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
         log.warn("Validation exception: ", e);
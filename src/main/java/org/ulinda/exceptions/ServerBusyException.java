@@ -0,0 +1,11 @@
+package org.ulinda.exceptions;
+
+/**
+ * The request was turned away because the server is overloaded; answered with 503 so the client retries later.
+ */
+public class ServerBusyException extends FrontendException {
+
+    public ServerBusyException(String message) {
+        super(message, ErrorCode.SERVER_BUSY, true);
+    }
+}
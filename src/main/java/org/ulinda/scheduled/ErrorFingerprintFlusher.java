@@ -0,0 +1,27 @@
+package org.ulinda.scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ulinda.services.ErrorAggregator;
+
+/**
+ * Periodically writes the error occurrences counted in memory.
+ */
+@Service
+@Slf4j
+public class ErrorFingerprintFlusher {
+
+    @Autowired
+    private ErrorAggregator errorAggregator;
+
+    @Scheduled(fixedDelayString = "${ulinda.error-fingerprints.flush-interval-ms:10000}")
+    public void runFlush() {
+        try {
+            errorAggregator.flush();
+        } catch (Exception e) {
+            log.error("Error while writing error fingerprints", e);
+        }
+    }
+}
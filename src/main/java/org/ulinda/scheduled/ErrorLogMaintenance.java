@@ -0,0 +1,35 @@
+package org.ulinda.scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ulinda.services.ErrorLogPartitionService;
+import org.ulinda.services.JobCoordinator;
+
+import java.time.Duration;
+
+/**
+ * Creates the upcoming error log partitions and drops the expired ones.
+ */
+@Service
+@Slf4j
+public class ErrorLogMaintenance {
+
+    @Autowired
+    private ErrorLogPartitionService errorLogPartitionService;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Scheduled(cron = "0 5 * * * ?")
+    public void runMaintenance() {
+        jobCoordinator.run("error-log-maintenance", Duration.ofMinutes(30), () -> {
+            errorLogPartitionService.createPartitions();
+            int dropped = errorLogPartitionService.dropExpiredPartitions();
+            if (dropped > 0) {
+                log.info("Error log maintenance dropped {} expired partitions", dropped);
+            }
+        });
+    }
+}
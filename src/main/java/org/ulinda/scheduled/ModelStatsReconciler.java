@@ -0,0 +1,64 @@
+package org.ulinda.scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ulinda.entities.Model;
+import org.ulinda.entities.ModelLink;
+import org.ulinda.repositories.ModelLinkRepository;
+import org.ulinda.repositories.ModelRepository;
+import org.ulinda.services.JobCoordinator;
+import org.ulinda.services.ModelStatsService;
+
+import java.time.Duration;
+
+/**
+ * Recounts records and model link tables and repairs their row counters. Also seeds the counters of models
+ * and links that were created before the counters existed.
+ */
+@Service
+@Slf4j
+public class ModelStatsReconciler {
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private ModelLinkRepository modelLinkRepository;
+
+    @Autowired
+    private ModelStatsService modelStatsService;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${ulinda.model-stats.reconcile-interval-ms:3600000}")
+    private long intervalMs;
+
+    @Scheduled(initialDelayString = "${ulinda.model-stats.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${ulinda.model-stats.reconcile-interval-ms:3600000}")
+    public void runReconciliation() {
+        jobCoordinator.run("model-stats-reconciler", Duration.ofMillis(intervalMs / 2), this::reconcile);
+    }
+
+    private void reconcile() {
+        for (Model model : modelRepository.findAll()) {
+            String tableName = "records_" + model.getId().toString().replace("-", "_");
+            try {
+                modelStatsService.reconcile(model.getId(), tableName);
+            } catch (Exception e) {
+                log.error("Error while reconciling row counter of model: " + model.getId(), e);
+            }
+        }
+        for (ModelLink modelLink : modelLinkRepository.findAll()) {
+            String tableName = "model_links_" + modelLink.getId().toString().replace("-", "_");
+            try {
+                modelStatsService.reconcile(modelLink.getId(), tableName);
+            } catch (Exception e) {
+                log.error("Error while reconciling row counter of model link: " + modelLink.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.ulinda.scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ulinda.entities.Model;
+import org.ulinda.repositories.ModelRepository;
+import org.ulinda.services.JobCoordinator;
+import org.ulinda.services.SearchIndexService;
+
+import java.time.Duration;
+
+/**
+ * Fills the global search index with the records of models that existed before the index, and repairs
+ * entries that drifted from the records tables.
+ */
+@Service
+@Slf4j
+public class SearchIndexBackfill {
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${ulinda.search-index.backfill-interval-ms:86400000}")
+    private long intervalMs;
+
+    @Scheduled(initialDelayString = "${ulinda.search-index.backfill-initial-delay-ms:30000}",
+            fixedDelayString = "${ulinda.search-index.backfill-interval-ms:86400000}")
+    public void runBackfill() {
+        jobCoordinator.run("search-index-backfill", Duration.ofMillis(intervalMs / 2), this::backfill);
+    }
+
+    private void backfill() {
+        for (Model model : modelRepository.findAll()) {
+            try {
+                searchIndexService.backfillModel(model.getId());
+            } catch (Exception e) {
+                log.error("Error while backfilling search index of model: " + model.getId(), e);
+            }
+        }
+    }
+}
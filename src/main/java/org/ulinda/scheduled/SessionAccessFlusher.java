@@ -0,0 +1,29 @@
+package org.ulinda.scheduled;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ulinda.services.SessionService;
+
+/**
+ * Periodically writes the session last access times recorded in memory, and once more on shutdown.
+ */
+@Service
+@Slf4j
+public class SessionAccessFlusher {
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Scheduled(fixedDelayString = "${ulinda.session.last-access-flush-interval-ms:10000}")
+    @PreDestroy
+    public void runFlush() {
+        try {
+            sessionService.flushLastAccesses();
+        } catch (Exception e) {
+            log.error("Error while writing session last access times", e);
+        }
+    }
+}
@@ -2,15 +2,14 @@ package org.ulinda.scheduled;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.ulinda.entities.Session;
-import org.ulinda.services.SecuritySettingsService;
-import org.ulinda.services.SessionService;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.List;
+import org.ulinda.services.JobCoordinator;
+import org.ulinda.services.SecuritySettingsService;
+import org.ulinda.services.SessionService;
 
 @Service
 @Slf4j
@@ -22,22 +21,29 @@ public class SessionChecker {
     @Autowired
     private SecuritySettingsService securitySettingsService;
 
+    @Value("${ulinda.session.expiry-batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
     @Scheduled(cron = "0 * * * * ?")
     public void runSessionChecker() {
-        List<Session> sessions = sessionService.getAllSessions();
-        int timeout = securitySettingsService.getSessionTimeoutMinutes();
+        // Every node writes its own last access times, the expiry runs on one node
+        sessionService.flushLastAccesses();
+        jobCoordinator.runCounting("session-checker", Duration.ofSeconds(30), this::expireSessions);
+    }
 
-        Instant now = Instant.now();
-        for (Session session : sessions) {
-            long minutesSinceLastAccess = Duration.between(session.getLastAccessed(), now).toMinutes();
-            if (minutesSinceLastAccess >= timeout) {
-                log.info("Invalidating Session: " + session.getId());
-                try {
-                    sessionService.deleteSession(session.getId());
-                } catch (Exception e) {
-                    log.error("Error while deleting session: " + session.getId(), e);
-                }
-            }
+    private long expireSessions() {
+        long start = System.nanoTime();
+        int timeout = securitySettingsService.getSessionTimeoutMinutes();
+        int deleted = sessionService.deleteExpiredSessions(timeout, batchSize);
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        if (deleted > 0) {
+            log.info("Session checker removed {} expired sessions in {} ms", deleted, durationMs);
+        } else {
+            log.debug("Session checker removed no sessions in {} ms", durationMs);
         }
+        return deleted;
     }
 }
@@ -10,10 +10,12 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.ulinda.entities.CurrentUserToken;
+import org.ulinda.exceptions.ServerBusyException;
 import org.ulinda.repositories.CurrentUserTokenRepository;
+import org.ulinda.services.ApiTokenCache;
+import org.ulinda.services.PasswordHashingService;
 import org.ulinda.services.SessionService;
 import org.ulinda.services.UserService;
 
@@ -29,15 +31,17 @@ public class AuthenticationFilter extends OncePerRequestFilter {
     private final UserService userService;
     private final SessionService sessionService;
     private final CurrentUserTokenRepository currentUserTokenRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final ApiTokenCache apiTokenCache;
 
     private static final int TOKEN_PREFIX_LENGTH = 14; // "uli_" + 10 chars
 
-    public AuthenticationFilter(UserService userService, SessionService sessionService, CurrentUserTokenRepository currentUserTokenRepository, PasswordEncoder passwordEncoder) {
+    public AuthenticationFilter(UserService userService, SessionService sessionService, CurrentUserTokenRepository currentUserTokenRepository, PasswordHashingService passwordHashingService, ApiTokenCache apiTokenCache) {
         this.userService = userService;
         this.sessionService = sessionService;
         this.currentUserTokenRepository = currentUserTokenRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.apiTokenCache = apiTokenCache;
     }
 
     @Override
@@ -72,17 +76,28 @@ public class AuthenticationFilter extends OncePerRequestFilter {
                     // Extract token prefix for lookup (first 14 characters)
                     String tokenPrefix = token.substring(0, Math.min(TOKEN_PREFIX_LENGTH, token.length()));
 
+                    // Tokens verified before skip the lookup and BCrypt
+                    String tokenDigest = apiTokenCache.digest(token);
+                    ApiTokenCache.VerifiedToken verifiedToken = apiTokenCache.get(tokenDigest);
+                    if (verifiedToken != null) {
+                        userId = verifiedToken.userId();
+                        isAuthenticated = true;
+                        log.debug("Cached API token validated for user: {} (prefix: {})", userId, tokenPrefix);
+                    }
+                    long verifyGeneration = apiTokenCache.getGeneration();
+
                     // Look up tokens by prefix (faster than checking all tokens)
-                    List<CurrentUserToken> candidateTokens = currentUserTokenRepository.findAllByTokenPrefix(tokenPrefix);
+                    List<CurrentUserToken> candidateTokens = isAuthenticated ? List.of() : currentUserTokenRepository.findAllByTokenPrefix(tokenPrefix);
 
                     // Check each candidate token by comparing hashes
                     for (CurrentUserToken candidate : candidateTokens) {
                         // Verify hash matches
-                        if (passwordEncoder.matches(token, candidate.getTokenHash())) {
+                        if (passwordHashingService.matchesToken(token, candidate.getTokenHash())) {
                             // Check if token is expired
                             if (candidate.getTokenExpiryDateTime().isAfter(Instant.now())) {
                                 userId = candidate.getUserId();
                                 isAuthenticated = true;
+                                apiTokenCache.put(tokenDigest, candidate, verifyGeneration);
                                 log.debug("API token validated for user: {} (prefix: {})", userId, tokenPrefix);
                                 break; // Token found and valid
                             } else {
@@ -94,9 +109,13 @@ public class AuthenticationFilter extends OncePerRequestFilter {
 
                     if (!isAuthenticated && !candidateTokens.isEmpty()) {
                         log.warn("API token hash mismatch for prefix: {}", tokenPrefix);
-                    } else if (candidateTokens.isEmpty()) {
+                    } else if (!isAuthenticated) {
                         log.warn("No API token found with prefix: {}", tokenPrefix);
                     }
+                } catch (ServerBusyException e) {
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    response.setHeader("Retry-After", "1");
+                    return;
                 } catch (Exception e) {
                     log.error("API token validation failed", e);
                 }
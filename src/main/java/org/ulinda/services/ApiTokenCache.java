@@ -0,0 +1,122 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.ulinda.entities.CurrentUserToken;
+import org.ulinda.enums.CacheInvalidationType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * API tokens that passed the BCrypt check, keyed by the SHA-256 digest of the presented token, so only the
+ * first request with a token pays for BCrypt. The plain token is never kept. Entries are dropped when the
+ * token is deleted or has expired. Invalidation bumps a generation, so a token deleted while it is being
+ * verified is not cached.
+ */
+@Service
+@Slf4j
+public class ApiTokenCache {
+
+    public record VerifiedToken(UUID tokenId, UUID userId, Instant expiry) {
+    }
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${ulinda.token-cache.max-size:10000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<String, VerifiedToken> tokens = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    void registerInvalidation() {
+        cacheInvalidationBus.register(CacheInvalidationType.API_TOKENS, tokenId -> {
+            if (tokenId != null) {
+                evict(tokenId);
+            } else {
+                evictAll();
+            }
+        });
+    }
+
+    public String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns the verified token for a digest, or null when it is not cached or has expired.
+     */
+    public VerifiedToken get(String digest) {
+        VerifiedToken verifiedToken = tokens.get(digest);
+        if (verifiedToken != null && !verifiedToken.expiry().isAfter(Instant.now())) {
+            tokens.remove(digest, verifiedToken);
+            return null;
+        }
+        return verifiedToken;
+    }
+
+    /**
+     * Returns the current generation, to be passed to {@link #put} after verifying a token.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a verified token, unless a token was invalidated since the verification started.
+     */
+    public void put(String digest, CurrentUserToken token, long verifyGeneration) {
+        if (generation.get() != verifyGeneration) {
+            return;
+        }
+        if (tokens.size() >= maxSize) {
+            log.debug("Token cache reached {} entries, clearing", maxSize);
+            tokens.clear();
+        }
+        tokens.put(digest, new VerifiedToken(token.getId(), token.getUserId(), token.getTokenExpiryDateTime()));
+    }
+
+    /**
+     * Drops a deleted token, here right away and again after commit, on the other nodes when the transaction commits.
+     */
+    public void invalidateToken(UUID tokenId) {
+        evict(tokenId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(tokenId);
+                }
+            });
+        }
+        cacheInvalidationBus.publish(CacheInvalidationType.API_TOKENS, tokenId);
+    }
+
+    private void evict(UUID tokenId) {
+        generation.incrementAndGet();
+        tokens.values().removeIf(verifiedToken -> verifiedToken.tokenId().equals(tokenId));
+    }
+
+    private void evictAll() {
+        generation.incrementAndGet();
+        tokens.clear();
+    }
+}
@@ -0,0 +1,213 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.ulinda.enums.CacheInvalidationType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between the application nodes over PostgreSQL LISTEN/NOTIFY. A cache that
+ * changes locally publishes the invalidation; the NOTIFY is delivered when the publishing transaction commits
+ * and is dropped when it rolls back. Every node listens on a dedicated connection and runs the handlers the
+ * caches registered. After connecting, after a reconnect, and when the sequence numbers of a node show a
+ * missed notification, all caches are flushed.
+ * <p>
+ * Payload: {@code nodeId:sequence:TYPE:id}, with {@code *} as id for all entries.
+ */
+@Service
+@Slf4j
+public class CacheInvalidationBus {
+
+    private static final String CHANNEL = "ulinda_cache_invalidation";
+    private static final String ALL = "*";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ulinda.cache-bus.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ulinda.cache-bus.poll-timeout-ms:10000}")
+    private int pollTimeoutMs;
+
+    @Value("${ulinda.cache-bus.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<CacheInvalidationType, Consumer<UUID>> handlers = new EnumMap<>(CacheInvalidationType.class);
+    // Last sequence number seen per publishing node, only used by the listener thread
+    private final Map<String, Long> lastSequences = new HashMap<>();
+    private volatile boolean running;
+    private Thread listenerThread;
+    private TransactionTemplate savepointTemplate;
+
+    @PostConstruct
+    void createSavepointTemplate() {
+        savepointTemplate = new TransactionTemplate(transactionManager);
+        savepointTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    /**
+     * Registers the local eviction of a cache. The handler gets the id of the entry, or null for all entries,
+     * and must not publish again.
+     */
+    public synchronized void register(CacheInvalidationType type, Consumer<UUID> handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Tells the other nodes to evict an entry, or all entries when id is null. Runs in the caller's transaction,
+     * inside a savepoint so a failed NOTIFY does not abort that transaction.
+     */
+    public void publish(CacheInvalidationType type, UUID id) {
+        if (!enabled) {
+            return;
+        }
+        String payload = nodeId + ":" + sequence.incrementAndGet() + ":" + type.name() + ":" + (id != null ? id : ALL);
+        try {
+            savepointTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, payload));
+        } catch (Exception e) {
+            // The other nodes resync after the gap in the sequence numbers
+            log.error("Failed to publish cache invalidation {}: {}", payload, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Cache invalidation bus is disabled");
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Listening for cache invalidations on {}", CHANNEL);
+                // Anything published while not listening was missed
+                flushAll();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null || notifications.length == 0) {
+                        // Detects a broken connection, getNotifications alone may wait forever
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SELECT 1");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Cache invalidation listener lost its connection, reconnecting in {} ms: {}", reconnectDelayMs, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Unexpected error in cache invalidation listener", e);
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        String[] parts = payload.split(":", 4);
+        if (parts.length != 4) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return; // Already evicted locally
+        }
+        try {
+            long sequenceNumber = Long.parseLong(parts[1]);
+            Long last = lastSequences.put(parts[0], sequenceNumber);
+            if (last != null && sequenceNumber != last + 1) {
+                // A rolled back or failed publish, or notifications delivered out of commit order
+                log.info("Gap in cache invalidations of node {} ({} after {}), flushing all caches", parts[0], sequenceNumber, last);
+                flushAll();
+                return;
+            }
+            CacheInvalidationType type = CacheInvalidationType.valueOf(parts[2]);
+            UUID id = ALL.equals(parts[3]) ? null : UUID.fromString(parts[3]);
+            Consumer<UUID> handler = getHandler(type);
+            if (handler != null) {
+                handler.accept(id);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+        }
+    }
+
+    private void flushAll() {
+        for (CacheInvalidationType type : CacheInvalidationType.values()) {
+            Consumer<UUID> handler = getHandler(type);
+            if (handler != null) {
+                handler.accept(null);
+            }
+        }
+    }
+
+    private synchronized Consumer<UUID> getHandler(CacheInvalidationType type) {
+        return handlers.get(type);
+    }
+}
@@ -0,0 +1,39 @@
+package org.ulinda.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Values that every application node must agree on, such as signing keys and calibrated parameters, stored in
+ * cluster_settings. The first node that needs a value creates it; every other node, and every later start,
+ * reads the stored one.
+ */
+@Service
+public class ClusterSettingsService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the stored value, storing initialValue first when there is none. When nodes race, the value of
+     * the first insert wins and all of them return it.
+     */
+    public String getOrCreate(String name, Supplier<String> initialValue) {
+        String value = get(name);
+        if (value != null) {
+            return value;
+        }
+        jdbcTemplate.update("INSERT INTO cluster_settings (name, value) VALUES (?, ?) ON CONFLICT (name) DO NOTHING",
+                name, initialValue.get());
+        return get(name);
+    }
+
+    private String get(String name) {
+        List<String> values = jdbcTemplate.queryForList("SELECT value FROM cluster_settings WHERE name = ?", String.class, name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+}
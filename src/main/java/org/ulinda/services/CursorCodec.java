@@ -0,0 +1,257 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.ulinda.dto.CursorInfo;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encodes pagination cursors in a compact, signed binary form, URL-safe Base64 without padding:
+ * <pre>
+ * version (1) | flags (1) | sort field ordinal (1) [| field id (16) for custom fields]
+ *   | record id (16) | value tag (1) | value | HMAC-SHA256 (first 16 bytes)
+ * </pre>
+ * Cursors are signed with ulinda.cursor.secret. Without it, a random key is generated once and stored in
+ * cluster_settings, so cursors stay valid across restarts and instances.
+ */
+@Service
+@Slf4j
+public class CursorCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final int FLAG_DESC = 1;
+    private static final int FLAG_NULLS_LAST = 1 << 1;
+
+    // Sort field ordinals
+    private static final String[] SYSTEM_SORT_FIELDS = {"id", "created_at", "updated_at", "rank"};
+    private static final int CUSTOM_SORT_FIELD = 4;
+
+    // Sort value tags
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_INSTANT = 3;
+    private static final byte TAG_UUID = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_DECIMAL = 6;
+    private static final byte TAG_BOOLEAN = 7;
+
+    private static final int MAC_LENGTH = 16;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String KEY_SETTING = "cursor.key";
+
+    private final String secret;
+    private final ClusterSettingsService clusterSettingsService;
+    private volatile SecretKeySpec key;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    @Autowired
+    public CursorCodec(@Value("${ulinda.cursor.secret:}") String secret, ClusterSettingsService clusterSettingsService) {
+        this.secret = secret;
+        this.clusterSettingsService = clusterSettingsService;
+    }
+
+    CursorCodec(String secret) {
+        this(secret, null);
+    }
+
+    /**
+     * Returns the configured key, or the shared stored one. Resolved on first use, after startup has created
+     * the settings table.
+     */
+    private SecretKeySpec getKey() {
+        SecretKeySpec current = key;
+        if (current != null) {
+            return current;
+        }
+        byte[] keyBytes;
+        if (secret != null && !secret.isBlank()) {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        } else {
+            if (clusterSettingsService == null) {
+                throw new IllegalStateException("ulinda.cursor.secret is not set");
+            }
+            keyBytes = Base64.getDecoder().decode(clusterSettingsService.getOrCreate(KEY_SETTING, () -> {
+                log.info("ulinda.cursor.secret is not set, storing a generated cursor key for all instances");
+                byte[] generated = new byte[32];
+                new SecureRandom().nextBytes(generated);
+                return Base64.getEncoder().encodeToString(generated);
+            }));
+        }
+        current = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+        key = current;
+        return current;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(getKey());
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize cursor signing", e);
+        }
+    }
+
+    /**
+     * Encodes a cursor. Returns null when there is no cursor or its sort value is too long to encode.
+     */
+    public String encode(CursorInfo cursorInfo) {
+        if (cursorInfo == null) {
+            return null;
+        }
+        byte[] valueBytes = null;
+        Object value = cursorInfo.getSortFieldValue();
+        if (value instanceof String string) {
+            valueBytes = string.getBytes(StandardCharsets.UTF_8);
+        } else if (value instanceof BigDecimal decimal) {
+            valueBytes = decimal.unscaledValue().toByteArray();
+        }
+        if (valueBytes != null && valueBytes.length > 0xFFFF) {
+            log.warn("Sort value of record {} is too long for a cursor", cursorInfo.getRecordId());
+            return null;
+        }
+        UUID customFieldId = getCustomFieldId(cursorInfo.getSortField());
+
+        // Header, field id, record id, value tag, the largest fixed size value or a length prefix, signature
+        ByteBuffer buffer = ByteBuffer.allocate(3 + (customFieldId != null ? 16 : 0) + 16 + 1 + 16
+                + (valueBytes != null ? valueBytes.length : 0) + MAC_LENGTH);
+        buffer.put(VERSION);
+        int flags = 0;
+        if ("DESC".equalsIgnoreCase(cursorInfo.getSortOrder())) {
+            flags |= FLAG_DESC;
+        }
+        if (Boolean.TRUE.equals(cursorInfo.getNullsLast())) {
+            flags |= FLAG_NULLS_LAST;
+        }
+        buffer.put((byte) flags);
+        if (customFieldId != null) {
+            buffer.put((byte) CUSTOM_SORT_FIELD);
+            putUuid(buffer, customFieldId);
+        } else {
+            buffer.put((byte) getSystemSortFieldOrdinal(cursorInfo.getSortField()));
+        }
+        putUuid(buffer, cursorInfo.getRecordId());
+
+        switch (value) {
+            case null -> buffer.put(TAG_NULL);
+            case String ignored -> buffer.put(TAG_STRING).putShort((short) valueBytes.length).put(valueBytes);
+            case Long longValue -> buffer.put(TAG_LONG).putLong(longValue);
+            case Instant instant -> buffer.put(TAG_INSTANT).putLong(instant.getEpochSecond()).putInt(instant.getNano());
+            case UUID uuid -> putUuid(buffer.put(TAG_UUID), uuid);
+            case Float floatValue -> buffer.put(TAG_FLOAT).putFloat(floatValue);
+            case BigDecimal decimal -> buffer.put(TAG_DECIMAL).putInt(decimal.scale()).putShort((short) valueBytes.length).put(valueBytes);
+            case Boolean booleanValue -> buffer.put(TAG_BOOLEAN).put((byte) (booleanValue ? 1 : 0));
+            default -> throw new IllegalArgumentException("Unsupported cursor value type: " + value.getClass().getName());
+        }
+
+        Mac mac = macs.get();
+        mac.update(buffer.array(), 0, buffer.position());
+        buffer.put(mac.doFinal(), 0, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    /**
+     * Decodes a cursor. Returns null when it is empty, malformed or not signed with the cursor key.
+     */
+    public CursorInfo decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        // Outside the try, a key that cannot be loaded is an error and not an invalid cursor
+        Mac mac = macs.get();
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            int length = bytes.length - MAC_LENGTH;
+            if (length < 3 || bytes[0] != VERSION) {
+                log.warn("Ignoring cursor with unknown format");
+                return null;
+            }
+            mac.update(bytes, 0, length);
+            byte[] signature = mac.doFinal();
+            // Constant time comparison
+            int difference = 0;
+            for (int i = 0; i < MAC_LENGTH; i++) {
+                difference |= signature[i] ^ bytes[length + i];
+            }
+            if (difference != 0) {
+                log.warn("Ignoring cursor with invalid signature");
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+            buffer.get(); // version
+            int flags = buffer.get();
+            int ordinal = buffer.get();
+            String sortField = ordinal == CUSTOM_SORT_FIELD ? getUuid(buffer).toString() : SYSTEM_SORT_FIELDS[ordinal];
+            UUID recordId = getUuid(buffer);
+            Object value = switch (buffer.get()) {
+                case TAG_NULL -> null;
+                case TAG_STRING -> {
+                    int valueLength = Short.toUnsignedInt(buffer.getShort());
+                    String string = new String(bytes, buffer.position(), valueLength, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + valueLength);
+                    yield string;
+                }
+                case TAG_LONG -> buffer.getLong();
+                case TAG_INSTANT -> Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+                case TAG_UUID -> getUuid(buffer);
+                case TAG_FLOAT -> buffer.getFloat();
+                case TAG_DECIMAL -> {
+                    int scale = buffer.getInt();
+                    byte[] unscaled = new byte[Short.toUnsignedInt(buffer.getShort())];
+                    buffer.get(unscaled);
+                    yield new BigDecimal(new BigInteger(unscaled), scale);
+                }
+                case TAG_BOOLEAN -> buffer.get() != 0;
+                default -> throw new IllegalArgumentException("Unknown value tag");
+            };
+            return new CursorInfo(value, recordId, sortField, (flags & FLAG_DESC) != 0 ? "DESC" : "ASC",
+                    (flags & FLAG_NULLS_LAST) != 0);
+        } catch (RuntimeException e) {
+            log.warn("Failed to decode cursor '{}': {}", cursor, e.getMessage());
+            return null;
+        }
+    }
+
+    private UUID getCustomFieldId(String sortField) {
+        for (String systemSortField : SYSTEM_SORT_FIELDS) {
+            if (systemSortField.equals(sortField)) {
+                return null;
+            }
+        }
+        return UUID.fromString(sortField);
+    }
+
+    private int getSystemSortFieldOrdinal(String sortField) {
+        for (int i = 0; i < SYSTEM_SORT_FIELDS.length; i++) {
+            if (SYSTEM_SORT_FIELDS[i].equals(sortField)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort field: " + sortField);
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
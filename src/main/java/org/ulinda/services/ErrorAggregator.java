@@ -0,0 +1,322 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.ulinda.dto.ErrorFingerprintDto;
+import org.ulinda.exceptions.ErrorCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Groups errors by fingerprint: the exception types of the cause chain plus the normalized top stack frames of
+ * the error, without line numbers and generated class suffixes. Occurrences are counted in memory and
+ * periodically upserted into error_fingerprints, with the stack trace stored gzip compressed once per
+ * fingerprint. Only the first few occurrences of a fingerprint per flush interval are kept as samples, which
+ * are the ones written to error_logs.
+ */
+@Service
+@Slf4j
+public class ErrorAggregator {
+
+    private static final int FINGERPRINT_FRAMES = 5;
+    private static final int FINGERPRINT_CAUSES = 3;
+    private static final int MAX_STORED_SAMPLES = 10;
+    private static final int MAX_KNOWN_FINGERPRINTS = 10_000;
+
+    // Numbered generated classes and lambdas, e.g. Foo$$SpringCGLIB$$0, Foo$$Lambda/0x000001, lambda$bar$3, jdk.proxy2.$Proxy87
+    private static final Pattern GENERATED_SUFFIX = Pattern.compile("(\\$\\$SpringCGLIB\\$\\$|\\$\\$Lambda|\\$Lambda|lambda\\$[\\w$]*?\\$|Accessor|\\$Proxy|jdk\\.proxy)[/0-9a-fx$]*");
+
+    private static final String UPSERT_SQL = "INSERT INTO error_fingerprints " +
+            "(fingerprint, exception_type, error_code, message, stack_trace, occurrences, first_seen, last_seen, sample_identifiers) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (fingerprint) DO UPDATE SET error_code = EXCLUDED.error_code, message = EXCLUDED.message, " +
+            "stack_trace = COALESCE(error_fingerprints.stack_trace, EXCLUDED.stack_trace), " +
+            "occurrences = error_fingerprints.occurrences + EXCLUDED.occurrences, " +
+            "first_seen = LEAST(error_fingerprints.first_seen, EXCLUDED.first_seen), " +
+            "last_seen = GREATEST(error_fingerprints.last_seen, EXCLUDED.last_seen), " +
+            "sample_identifiers = (EXCLUDED.sample_identifiers || error_fingerprints.sample_identifiers)[1:" + MAX_STORED_SAMPLES + "]";
+
+    private static class Aggregate {
+        final String exceptionType;
+        ErrorCode errorCode;
+        String message;
+        String stackTrace;
+        long count;
+        Instant firstSeen;
+        Instant lastSeen;
+        final List<UUID> sampleIdentifiers = new ArrayList<>();
+
+        Aggregate(String exceptionType) {
+            this.exceptionType = exceptionType;
+        }
+
+        void merge(Aggregate other) {
+            if (other.firstSeen.isBefore(firstSeen)) {
+                firstSeen = other.firstSeen;
+            }
+            if (other.lastSeen.isAfter(lastSeen)) {
+                lastSeen = other.lastSeen;
+                errorCode = other.errorCode;
+                message = other.message;
+            }
+            if (stackTrace == null) {
+                stackTrace = other.stackTrace;
+            }
+            count += other.count;
+            sampleIdentifiers.addAll(0, other.sampleIdentifiers);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ulinda.error-fingerprints.samples-per-interval:3}")
+    private int samplesPerInterval;
+
+    @Value("${ulinda.error-fingerprints.max-pending:1000}")
+    private int maxPending;
+
+    private final Map<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    // Fingerprints whose stack trace this node has stored, so it is not formatted again
+    private final Set<String> knownFingerprints = ConcurrentHashMap.newKeySet();
+    private final LongAdder dropped = new LongAdder();
+
+    public String fingerprint(Throwable e) {
+        StringBuilder key = new StringBuilder();
+        Throwable cause = e;
+        for (int i = 0; i < FINGERPRINT_CAUSES && cause != null; i++) {
+            key.append(normalize(cause.getClass().getName())).append('|');
+            cause = cause.getCause();
+        }
+        StackTraceElement[] frames = e.getStackTrace();
+        for (int i = 0; i < Math.min(FINGERPRINT_FRAMES, frames.length); i++) {
+            key.append(normalize(frames[i].getClassName())).append('.').append(normalize(frames[i].getMethodName())).append('|');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private String normalize(String name) {
+        return GENERATED_SUFFIX.matcher(name).replaceAll("$1");
+    }
+
+    /**
+     * Counts an occurrence. Returns true when it is one of the samples of this flush interval, which the caller
+     * keeps as an individual error log.
+     */
+    public boolean record(String fingerprint, Exception e, ErrorCode errorCode, UUID errorIdentifier) {
+        Instant now = Instant.now();
+        boolean[] sample = new boolean[1];
+        Aggregate result = aggregates.compute(fingerprint, (key, aggregate) -> {
+            if (aggregate == null) {
+                if (aggregates.size() >= maxPending) {
+                    return null;
+                }
+                aggregate = new Aggregate(e.getClass().getName());
+                aggregate.firstSeen = now;
+                if (!knownFingerprints.contains(fingerprint)) {
+                    aggregate.stackTrace = getStackTraceAsString(e);
+                }
+            }
+            aggregate.count++;
+            aggregate.lastSeen = now;
+            aggregate.errorCode = errorCode;
+            aggregate.message = e.getMessage();
+            if (aggregate.sampleIdentifiers.size() < samplesPerInterval) {
+                aggregate.sampleIdentifiers.add(errorIdentifier);
+                sample[0] = true;
+            }
+            return aggregate;
+        });
+        if (result == null) {
+            dropped.increment();
+        }
+        return sample[0];
+    }
+
+    private String getStackTraceAsString(Exception e) {
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+
+    /**
+     * Upserts the counted occurrences. Aggregates that fail to write are kept for the next flush.
+     */
+    public void flush() {
+        long droppedCount = dropped.sumThenReset();
+        if (droppedCount > 0) {
+            log.warn("Error aggregation reached {} pending fingerprints, dropped {} errors", maxPending, droppedCount);
+        }
+        if (aggregates.isEmpty()) {
+            return;
+        }
+        List<String> fingerprints = new ArrayList<>();
+        List<Aggregate> batch = new ArrayList<>();
+        for (String fingerprint : aggregates.keySet()) {
+            Aggregate aggregate = aggregates.remove(fingerprint);
+            if (aggregate != null) {
+                fingerprints.add(fingerprint);
+                batch.add(aggregate);
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Aggregate aggregate = batch.get(i);
+                    ps.setString(1, fingerprints.get(i));
+                    ps.setString(2, aggregate.exceptionType);
+                    ps.setString(3, aggregate.errorCode != null ? aggregate.errorCode.name() : null);
+                    ps.setString(4, aggregate.message);
+                    ps.setBytes(5, aggregate.stackTrace != null ? compress(aggregate.stackTrace) : null);
+                    ps.setLong(6, aggregate.count);
+                    ps.setTimestamp(7, Timestamp.from(aggregate.firstSeen));
+                    ps.setTimestamp(8, Timestamp.from(aggregate.lastSeen));
+                    // Newest first
+                    List<UUID> samples = new ArrayList<>(aggregate.sampleIdentifiers);
+                    Collections.reverse(samples);
+                    Array array = ps.getConnection().createArrayOf("uuid",
+                            samples.subList(0, Math.min(MAX_STORED_SAMPLES, samples.size())).toArray());
+                    ps.setArray(9, array);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            if (knownFingerprints.size() >= MAX_KNOWN_FINGERPRINTS) {
+                knownFingerprints.clear();
+            }
+            knownFingerprints.addAll(fingerprints);
+            forgetMissingStackTraces(fingerprints, batch);
+            log.debug("Flushed {} error fingerprints", batch.size());
+        } catch (RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                Aggregate aggregate = batch.get(i);
+                aggregates.merge(fingerprints.get(i), aggregate, (newer, older) -> {
+                    newer.merge(older);
+                    return newer;
+                });
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the known fingerprints that were written without a stack trace but have none stored, because the
+     * retention purge deleted the row on any node in the meantime. Their next occurrence sends the trace again.
+     */
+    private void forgetMissingStackTraces(List<String> fingerprints, List<Aggregate> batch) {
+        List<String> withoutStackTrace = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).stackTrace == null) {
+                withoutStackTrace.add(fingerprints.get(i));
+            }
+        }
+        if (withoutStackTrace.isEmpty()) {
+            return;
+        }
+        List<String> missing = jdbcTemplate.queryForList("SELECT fingerprint FROM error_fingerprints " +
+                "WHERE fingerprint = ANY(?) AND stack_trace IS NULL", String.class, (Object) withoutStackTrace.toArray(new String[0]));
+        missing.forEach(knownFingerprints::remove);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush error fingerprints on shutdown: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the fingerprints, most recently seen first.
+     */
+    public List<ErrorFingerprintDto> getFingerprints(int pageNumber, int size) {
+        return jdbcTemplate.query("SELECT fingerprint, exception_type, error_code, message, occurrences, first_seen, last_seen, sample_identifiers " +
+                "FROM error_fingerprints ORDER BY last_seen DESC, fingerprint LIMIT ? OFFSET ?", (rs, rowNum) -> {
+            ErrorFingerprintDto dto = new ErrorFingerprintDto();
+            dto.setFingerprint(rs.getString(1));
+            dto.setExceptionType(rs.getString(2));
+            String errorCode = rs.getString(3);
+            dto.setErrorCode(errorCode != null ? ErrorCode.valueOf(errorCode) : null);
+            dto.setMessage(rs.getString(4));
+            dto.setOccurrences(rs.getLong(5));
+            dto.setFirstSeen(rs.getTimestamp(6).toInstant());
+            dto.setLastSeen(rs.getTimestamp(7).toInstant());
+            Array samples = rs.getArray(8);
+            dto.setSampleErrorIdentifiers(samples != null ? Arrays.asList((UUID[]) samples.getArray()) : List.of());
+            return dto;
+        }, size, (long) pageNumber * size);
+    }
+
+    public long countFingerprints() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM error_fingerprints", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Returns the stored stack trace of a fingerprint, or null.
+     */
+    public String getStackTrace(String fingerprint) {
+        List<byte[]> stackTraces = jdbcTemplate.queryForList(
+                "SELECT stack_trace FROM error_fingerprints WHERE fingerprint = ?", byte[].class, fingerprint);
+        return stackTraces.isEmpty() || stackTraces.get(0) == null ? null : decompress(stackTraces.get(0));
+    }
+
+    private static byte[] compress(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String decompress(byte[] compressed) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
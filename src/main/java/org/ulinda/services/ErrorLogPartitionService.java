@@ -0,0 +1,151 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the daily range partitions of error_logs, by timestamp in UTC. Partitions are created some days
+ * ahead and dropped as a whole once they are older than the retention. An error_logs table from before
+ * partitioning is kept as a single partition that holds everything up to the day after the conversion, and is
+ * dropped when that day has expired.
+ * <p>
+ * Partition names: {@code error_logs_pYYYYMMDD} for one day, {@code error_logs_legacy_YYYYMMDD} for the
+ * converted table, with the day its range ends.
+ */
+@Service
+@Slf4j
+public class ErrorLogPartitionService {
+
+    private static final Pattern DAY_PARTITION = Pattern.compile("error_logs_p(\\d{8})");
+    private static final Pattern LEGACY_PARTITION = Pattern.compile("error_logs_legacy_(\\d{8})");
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    // Range of a partition; from is null for the legacy partition, which starts at MINVALUE
+    private record Partition(String name, LocalDate from, LocalDate to) {
+
+        boolean overlaps(LocalDate day) {
+            return (from == null || !day.isBefore(from)) && day.isBefore(to);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ulinda.error-log.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${ulinda.error-log.premake-days:7}")
+    private int premakeDays;
+
+    public void createPartitionedTable() {
+        String createSql = """
+            CREATE TABLE error_logs (
+                id UUID NOT NULL DEFAULT gen_random_uuid(),
+                error_identifier UUID NOT NULL,
+                timestamp TIMESTAMPTZ NOT NULL,
+                message TEXT,
+                stack_trace TEXT,
+                error_code TEXT,
+                fingerprint TEXT,
+                PRIMARY KEY (id, timestamp)
+            ) PARTITION BY RANGE (timestamp);
+            CREATE INDEX idx_error_logs_error_identifier ON error_logs (error_identifier);
+            CREATE INDEX idx_error_logs_timestamp_id ON error_logs (timestamp, id);
+        """;
+        jdbcTemplate.execute(createSql);
+    }
+
+    /**
+     * Converts an unpartitioned error_logs table: it is renamed and attached as the legacy partition. Its rows
+     * are not copied.
+     */
+    public void ensurePartitionedTable() {
+        String relkind = jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = to_regclass('error_logs')", String.class);
+        if ("p".equals(relkind)) {
+            return;
+        }
+        // Errors logged today stay in the legacy partition
+        LocalDate legacyTo = today().plusDays(1);
+        String legacyName = "error_logs_legacy_" + legacyTo.format(DAY);
+        log.info("Converting error_logs to a partitioned table, existing errors move to partition {}", legacyName);
+        jdbcTemplate.execute("ALTER TABLE error_logs RENAME TO " + legacyName);
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS error_logs_pkey RENAME TO " + legacyName + "_pkey");
+        createPartitionedTable();
+        jdbcTemplate.execute("ALTER TABLE error_logs ATTACH PARTITION " + legacyName +
+                " FOR VALUES FROM (MINVALUE) TO (" + toBound(legacyTo) + ")");
+    }
+
+    /**
+     * Creates the partitions from today up to the premake days ahead, where missing.
+     */
+    public void createPartitions() {
+        List<Partition> partitions = getPartitions();
+        LocalDate today = today();
+        for (LocalDate day = today; !day.isAfter(today.plusDays(premakeDays)); day = day.plusDays(1)) {
+            LocalDate partitionDay = day;
+            if (partitions.stream().anyMatch(partition -> partition.overlaps(partitionDay))) {
+                continue;
+            }
+            String name = "error_logs_p" + day.format(DAY);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF error_logs FOR VALUES FROM (" +
+                    toBound(day) + ") TO (" + toBound(day.plusDays(1)) + ")");
+            log.info("Created error log partition {}", name);
+        }
+    }
+
+    /**
+     * Drops the partitions that end before the retention, and the fingerprints not seen since. Returns the number
+     * of partitions dropped.
+     */
+    public int dropExpiredPartitions() {
+        LocalDate cutoff = today().minusDays(retentionDays);
+        int dropped = 0;
+        for (Partition partition : getPartitions()) {
+            if (!partition.to().isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.name());
+                log.info("Dropped expired error log partition {}", partition.name());
+                dropped++;
+            }
+        }
+        jdbcTemplate.update("DELETE FROM error_fingerprints WHERE last_seen < " + toBound(cutoff) + "::timestamptz");
+        return dropped;
+    }
+
+    private List<Partition> getPartitions() {
+        List<String> names = jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'error_logs'::regclass", String.class);
+        List<Partition> partitions = new ArrayList<>();
+        for (String name : names) {
+            Matcher day = DAY_PARTITION.matcher(name);
+            Matcher legacy = LEGACY_PARTITION.matcher(name);
+            if (day.matches()) {
+                LocalDate from = LocalDate.parse(day.group(1), DAY);
+                partitions.add(new Partition(name, from, from.plusDays(1)));
+            } else if (legacy.matches()) {
+                partitions.add(new Partition(name, null, LocalDate.parse(legacy.group(1), DAY)));
+            } else {
+                log.warn("Ignoring error log partition with unknown name {}", name);
+            }
+        }
+        return partitions;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    private static String toBound(LocalDate day) {
+        return "'" + day + " 00:00:00+00'";
+    }
+}
@@ -0,0 +1,140 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.ulinda.dto.ErrorLogWriterStatsDto;
+import org.ulinda.entities.ErrorLog;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes error logs in the background. Errors go into a bounded buffer that a single writer thread drains
+ * with batched inserts. Adding never blocks: when the buffer is full the oldest error is dropped and counted.
+ * The buffer is drained on shutdown.
+ */
+@Service
+@Slf4j
+public class ErrorLogWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO error_logs (id, error_identifier, timestamp, message, stack_trace, error_code, fingerprint) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ulinda.error-log.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${ulinda.error-log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ulinda.error-log.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private ArrayBlockingQueue<ErrorLog> buffer;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private long reportedDropped;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        running = true;
+        writerThread = new Thread(this::drain, "error-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues an error log, dropping the oldest queued one when the buffer is full.
+     */
+    public void add(ErrorLog errorLog) {
+        while (!buffer.offer(errorLog)) {
+            if (buffer.poll() != null) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private void drain() {
+        List<ErrorLog> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                ErrorLog first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Stop waiting, the loop drains what is left
+                running = false;
+            } finally {
+                batch.clear();
+            }
+            reportDropped();
+        }
+    }
+
+    private void write(List<ErrorLog> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, errorLog) -> {
+                ps.setObject(1, errorLog.getId() != null ? errorLog.getId() : UUID.randomUUID());
+                ps.setObject(2, errorLog.getErrorIdentifier());
+                ps.setTimestamp(3, Timestamp.from(errorLog.getTimestamp()));
+                ps.setString(4, errorLog.getMessage());
+                ps.setString(5, errorLog.getStackTrace());
+                ps.setString(6, errorLog.getErrorCode() != null ? errorLog.getErrorCode().name() : null);
+                ps.setString(7, errorLog.getFingerprint());
+            });
+            written.add(batch.size());
+            log.debug("Wrote {} error logs", batch.size());
+        } catch (Exception e) {
+            // Never let database errors stop the writer
+            failed.add(batch.size());
+            log.error("Failed to write {} error logs: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    private void reportDropped() {
+        long droppedCount = dropped.sum();
+        if (droppedCount > reportedDropped) {
+            log.warn("Error log buffer was full, dropped {} error logs ({} in total)", droppedCount - reportedDropped, droppedCount);
+            reportedDropped = droppedCount;
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(shutdownTimeoutMs);
+        if (writerThread.isAlive()) {
+            log.warn("Error log writer did not finish within {} ms, {} error logs not written", shutdownTimeoutMs, buffer.size());
+        }
+    }
+
+    public ErrorLogWriterStatsDto getStats() {
+        ErrorLogWriterStatsDto stats = new ErrorLogWriterStatsDto();
+        stats.setQueued(buffer.size());
+        stats.setBufferSize(bufferSize);
+        stats.setWritten(written.sum());
+        stats.setDropped(dropped.sum());
+        stats.setFailed(failed.sum());
+        return stats;
+    }
+}
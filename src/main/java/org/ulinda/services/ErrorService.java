@@ -3,17 +3,23 @@ package org.ulinda.services;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.crossstore.ChangeSetPersister;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.ulinda.dto.ErrorDetailDto;
+import org.ulinda.dto.ErrorDto;
+import org.ulinda.dto.ErrorLogWriterStatsDto;
+import org.ulinda.dto.ErrorPagingInfo;
+import org.ulinda.dto.GetErrorFingerprintsResponse;
 import org.ulinda.dto.GetErrorsResponse;
 import org.ulinda.entities.ErrorLog;
+import org.ulinda.exceptions.ErrorCode;
 import org.ulinda.exceptions.ErrorResponse;
-import org.ulinda.repositories.ErrorRepository;
+import org.ulinda.exceptions.FrontendException;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -22,51 +28,130 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class ErrorService {
 
+    // How far from the given time an error is searched for
+    private static final Duration LOOKUP_WINDOW = Duration.ofHours(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ErrorLogWriter errorLogWriter;
+
     @Autowired
-    private ErrorRepository errorRepository;
+    private ErrorAggregator errorAggregator;
 
     /**
-     * Save error asynchronously - doesn't block the response
+     * Save error asynchronously - counts it under its fingerprint and queues sampled occurrences for the error
+     * log writer, never blocks the response. The stack trace is stored once per fingerprint.
      */
-    @Async
     public void saveErrorAsync(Exception e, ErrorResponse er) {
         try {
+            String fingerprint = errorAggregator.fingerprint(e);
+            if (!errorAggregator.record(fingerprint, e, er.getErrorCode(), er.getErrorIdentifier())) {
+                return;
+            }
             ErrorLog error = new ErrorLog();
             error.setMessage(e.getMessage());
             error.setErrorCode(er.getErrorCode());
-            error.setStackTrace(getStackTraceAsString(e));
             error.setErrorIdentifier(er.getErrorIdentifier());
-            errorRepository.save(error);
-            log.debug("Error log saved asynchronously with ID: {}", error.getId());
-
+            error.setFingerprint(fingerprint);
+            errorLogWriter.add(error);
         } catch (Exception ex) {
-            // Never let database save errors break the exception handling
-            log.error("Failed to save error log asynchronously: {}", ex.getMessage(), ex);
+            // Never let saving errors break the exception handling
+            log.error("Failed to queue error log: {}", ex.getMessage(), ex);
         }
     }
 
-    private String getStackTraceAsString(Exception e) {
-        java.io.StringWriter sw = new java.io.StringWriter();
-        java.io.PrintWriter pw = new java.io.PrintWriter(sw);
-        e.printStackTrace(pw);
-        return sw.toString();
+    public ErrorLogWriterStatsDto getErrorLogWriterStats() {
+        return errorLogWriter.getStats();
     }
 
-    public Page<ErrorLog> getErrors(Pageable pageable) {
-        Page<ErrorLog> errors = errorRepository.findAll(pageable);
-        return errors;
+    /**
+     * Returns the error logs newest first, a page at a time: the cursor of a page is the nextCursor of the page
+     * before it, null for the first page. Pages are read by (timestamp, id) so deep pages cost as little as the first.
+     */
+    public GetErrorsResponse getErrors(String cursor, int size) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id, error_identifier, timestamp, message, error_code, fingerprint FROM error_logs");
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                params.add(Timestamp.from(Instant.parse(cursor.substring(0, separator))));
+                params.add(UUID.fromString(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new FrontendException("Invalid cursor", true);
+            }
+            sql.append(" WHERE (timestamp, id) < (?, ?)");
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        params.add(size + 1);
+        List<ErrorDto> errors = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            ErrorDto dto = new ErrorDto();
+            dto.setId(rs.getObject(1, UUID.class));
+            dto.setErrorIdentifier(rs.getObject(2, UUID.class));
+            dto.setTimestamp(rs.getTimestamp(3).toInstant());
+            dto.setMessage(rs.getString(4));
+            String errorCode = rs.getString(5);
+            dto.setErrorCode(errorCode != null ? ErrorCode.valueOf(errorCode) : null);
+            dto.setFingerprint(rs.getString(6));
+            return dto;
+        }, params.toArray());
+
+        GetErrorsResponse response = new GetErrorsResponse();
+        if (errors.size() > size) {
+            errors = errors.subList(0, size);
+            ErrorDto last = errors.get(size - 1);
+            response.setNextCursor(last.getTimestamp() + "_" + last.getId());
+        }
+        response.setErrors(errors);
+        return response;
     }
 
-    public ErrorDetailDto getErrorDetail(UUID errorIdentfier) {
-        ErrorLog error = errorRepository.findByErrorIdentifier(errorIdentfier);
-        if (error == null) {
-            throw new RuntimeException("No error found with ID: " + errorIdentfier);
+    /**
+     * Looks up an error by identifier. With the time of the error, only the partitions around it are searched.
+     * Only the sampled occurrences of an error are stored, so most identifiers shown to users have no details;
+     * those get an ERROR_NOT_SAMPLED error.
+     */
+    public ErrorDetailDto getErrorDetail(UUID errorIdentfier, Instant at) {
+        List<Object> params = new ArrayList<>();
+        params.add(errorIdentfier);
+        String sql = "SELECT error_identifier, timestamp, message, stack_trace, fingerprint FROM error_logs WHERE error_identifier = ?";
+        if (at != null) {
+            sql += " AND timestamp BETWEEN ? AND ?";
+            params.add(Timestamp.from(at.minus(LOOKUP_WINDOW)));
+            params.add(Timestamp.from(at.plus(LOOKUP_WINDOW)));
         }
+        List<ErrorLog> errors = jdbcTemplate.query(sql + " LIMIT 1", (rs, rowNum) -> {
+            ErrorLog errorLog = new ErrorLog();
+            errorLog.setErrorIdentifier(rs.getObject(1, UUID.class));
+            errorLog.setTimestamp(rs.getTimestamp(2).toInstant());
+            errorLog.setMessage(rs.getString(3));
+            errorLog.setStackTrace(rs.getString(4));
+            errorLog.setFingerprint(rs.getString(5));
+            return errorLog;
+        }, params.toArray());
+        if (errors.isEmpty()) {
+            throw new FrontendException("Error " + errorIdentfier + " was not sampled, only the sample identifiers listed for an error have details",
+                    ErrorCode.ERROR_NOT_SAMPLED, true);
+        }
+        ErrorLog error = errors.get(0);
         ErrorDetailDto errorDetail = new ErrorDetailDto();
         errorDetail.setErrorIdentifier(error.getErrorIdentifier());
         errorDetail.setTimestamp(error.getTimestamp());
         errorDetail.setMessage(error.getMessage());
-        errorDetail.setStackTrace(error.getStackTrace());
+        // Error logs written before fingerprinting have their own stack trace
+        if (error.getStackTrace() != null || error.getFingerprint() == null) {
+            errorDetail.setStackTrace(error.getStackTrace());
+        } else {
+            errorDetail.setStackTrace(errorAggregator.getStackTrace(error.getFingerprint()));
+        }
         return errorDetail;
     }
+
+    public GetErrorFingerprintsResponse getErrorFingerprints(int pageNumber, int size) {
+        GetErrorFingerprintsResponse response = new GetErrorFingerprintsResponse();
+        response.setFingerprints(errorAggregator.getFingerprints(pageNumber, size));
+        response.setPagingInfo(new ErrorPagingInfo(pageNumber, size, errorAggregator.countFingerprints()));
+        return response;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,285 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.ulinda.dto.FieldIndexStatusDto;
+import org.ulinda.entities.Field;
+import org.ulinda.enums.FieldType;
+import org.ulinda.enums.IndexBuildState;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Builds and drops the indexes of indexed fields. Every field gets a (field, id) B-tree index, which serves
+ * sorting and keyset pagination on the field; text fields also get a trigram GIN index for the ILIKE searches.
+ * Indexes are built with CREATE INDEX CONCURRENTLY on a single background thread, after the transaction that
+ * marked the field commits, so writes to the records table are not blocked. Dropping a field column drops its
+ * indexes with it.
+ */
+@Service
+@Slf4j
+public class FieldIndexService {
+
+    // SQL state of "relation already exists"
+    private static final String DUPLICATE_RELATION = "42P07";
+
+    private record IndexSpec(String name, String definition) {
+    }
+
+    private record BuildStatus(UUID modelId, IndexBuildState state, String error) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("indexBuildExecutor")
+    private Executor indexBuildExecutor;
+
+    private final Map<UUID, BuildStatus> builds = new ConcurrentHashMap<>();
+
+    /**
+     * Schedules the index build of a field. Indexes that already exist and are valid are kept.
+     */
+    public void scheduleBuild(Field field) {
+        UUID fieldId = field.getId();
+        UUID modelId = field.getModelId();
+        FieldType type = field.getType();
+        builds.put(fieldId, new BuildStatus(modelId, IndexBuildState.QUEUED, null));
+        afterCommit(() -> indexBuildExecutor.execute(() -> build(modelId, fieldId, type)));
+    }
+
+    /**
+     * Schedules dropping the indexes of a field that is no longer indexed.
+     */
+    public void scheduleDrop(Field field) {
+        UUID fieldId = field.getId();
+        afterCommit(() -> indexBuildExecutor.execute(() -> {
+            builds.remove(fieldId);
+            for (IndexSpec spec : getIndexSpecs(field.getModelId(), fieldId, field.getType())) {
+                dropIndex(spec.name());
+            }
+        }));
+    }
+
+    /**
+     * Schedules the (created_at, id) and (updated_at, id) indexes of a records table, which serve keyset
+     * pagination on the system sort fields. Indexes that already exist and are valid are kept.
+     */
+    public void scheduleSortIndexes(UUID modelId) {
+        String tableName = "records_" + modelId.toString().replace("-", "_");
+        afterCommit(() -> indexBuildExecutor.execute(() -> {
+            for (String column : List.of("created_at", "updated_at")) {
+                String indexName = "idx_" + tableName + "_" + column;
+                try {
+                    createIndex(indexName, tableName + " (" + column + ", id)");
+                } catch (Exception e) {
+                    log.error("Failed to build index {}", indexName, e);
+                }
+            }
+        }));
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Forgets the build status of a deleted field. Its indexes went with the column.
+     */
+    public void forgetField(UUID fieldId) {
+        builds.remove(fieldId);
+    }
+
+    /**
+     * Forgets the build statuses of the fields of a deleted model.
+     */
+    public void forgetModel(UUID modelId) {
+        builds.values().removeIf(build -> build.modelId().equals(modelId));
+    }
+
+    private void build(UUID modelId, UUID fieldId, FieldType type) {
+        // A status that is gone belongs to a field deleted while the build was queued
+        if (builds.replace(fieldId, new BuildStatus(modelId, IndexBuildState.BUILDING, null)) == null) {
+            return;
+        }
+        String currentIndex = null;
+        try {
+            for (IndexSpec spec : getIndexSpecs(modelId, fieldId, type)) {
+                currentIndex = spec.name();
+                if (spec.definition().contains("gin_trgm_ops") && !ensureTrigramExtension()) {
+                    continue;
+                }
+                createIndex(spec.name(), spec.definition());
+            }
+            builds.replace(fieldId, new BuildStatus(modelId, IndexBuildState.READY, null));
+            log.info("Indexes of field {} are ready", fieldId);
+        } catch (Exception e) {
+            log.error("Failed to build index {} of field {}", currentIndex, fieldId, e);
+            builds.replace(fieldId, new BuildStatus(modelId, IndexBuildState.FAILED, e.getMessage()));
+        }
+    }
+
+    /**
+     * Builds an index concurrently, unless it exists and is valid. Every node schedules the builds at startup, so
+     * another node may be building the same index: an invalid index that is being built is left alone, and an
+     * index created by another node while this one tried counts as built. On failure only the invalid index this
+     * build left behind is dropped, never one another node created.
+     */
+    private void createIndex(String indexName, String definition) {
+        Boolean valid = isIndexValid(indexName);
+        if (Boolean.TRUE.equals(valid)) {
+            return;
+        }
+        if (valid != null) {
+            if (isIndexBuilding(indexName)) {
+                log.info("Index {} is being built by another session", indexName);
+                return;
+            }
+            // Left over from an interrupted concurrent build
+            dropIndex(indexName);
+        }
+        log.info("Building index {}", indexName);
+        try {
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + indexName + " ON " + definition);
+        } catch (DataAccessException e) {
+            if (e.getMostSpecificCause() instanceof SQLException sqlException
+                    && DUPLICATE_RELATION.equals(sqlException.getSQLState())) {
+                log.info("Index {} was created by another session", indexName);
+                return;
+            }
+            // The name was free, so an invalid index with it is what this build left behind
+            if (Boolean.FALSE.equals(isIndexValid(indexName))) {
+                dropIndex(indexName);
+            }
+            throw e;
+        }
+    }
+
+    private boolean ensureTrigramExtension() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            return true;
+        } catch (Exception e) {
+            log.warn("pg_trgm extension is not available, skipping trigram index: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void dropIndex(String indexName) {
+        try {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+        } catch (Exception e) {
+            log.error("Failed to drop index {}: {}", indexName, e.getMessage());
+        }
+    }
+
+    private boolean isIndexBuilding(String indexName) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM pg_stat_progress_create_index WHERE index_relid = to_regclass(?))",
+                Boolean.class, indexName));
+    }
+
+    /**
+     * Returns whether the index is valid, or null when it does not exist.
+     */
+    private Boolean isIndexValid(String indexName) {
+        List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)", Boolean.class, indexName);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+
+    private List<IndexSpec> getIndexSpecs(UUID modelId, UUID fieldId, FieldType type) {
+        String id = fieldId.toString().replace("-", "_");
+        String tableName = "records_" + modelId.toString().replace("-", "_");
+        String columnName = "field_" + id;
+        List<IndexSpec> specs = new ArrayList<>(2);
+        // Long multi-line values can exceed the B-tree entry size limit, they only get the trigram index
+        if (type != FieldType.MULTI_LINE_TEXT) {
+            specs.add(new IndexSpec("idx_field_" + id, tableName + " (" + columnName + ", id)"));
+        }
+        if (type == FieldType.SINGLE_LINE_TEXT || type == FieldType.MULTI_LINE_TEXT || type == FieldType.EMAIL) {
+            specs.add(new IndexSpec("idx_field_" + id + "_trgm", tableName + " USING gin (" + columnName + " gin_trgm_ops)"));
+        }
+        return specs;
+    }
+
+    /**
+     * Returns the index state of all indexed fields, with the progress of running builds.
+     */
+    public List<FieldIndexStatusDto> getIndexStatuses() {
+        Map<String, Map<String, Object>> progressByIndex = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                "SELECT index_relid::regclass::text AS index_name, phase, blocks_done, blocks_total, tuples_done, tuples_total " +
+                        "FROM pg_stat_progress_create_index")) {
+            progressByIndex.put((String) row.get("index_name"), row);
+        }
+
+        List<FieldIndexStatusDto> statuses = new ArrayList<>();
+        List<Map<String, Object>> fields = jdbcTemplate.queryForList(
+                "SELECT id, model_id, name, type FROM fields WHERE is_indexed ORDER BY model_id, name");
+        for (Map<String, Object> row : fields) {
+            UUID fieldId = (UUID) row.get("id");
+            UUID modelId = (UUID) row.get("model_id");
+            FieldIndexStatusDto status = new FieldIndexStatusDto();
+            status.setFieldId(fieldId);
+            status.setModelId(modelId);
+            status.setFieldName((String) row.get("name"));
+
+            IndexBuildState state = IndexBuildState.READY;
+            for (IndexSpec spec : getIndexSpecs(modelId, fieldId, FieldType.valueOf((String) row.get("type")))) {
+                status.getIndexNames().add(spec.name());
+                Boolean valid = isIndexValid(spec.name());
+                if (valid == null && state == IndexBuildState.READY) {
+                    state = IndexBuildState.MISSING;
+                } else if (Boolean.FALSE.equals(valid)) {
+                    state = IndexBuildState.INVALID;
+                }
+                Map<String, Object> progress = progressByIndex.get(spec.name());
+                if (progress != null) {
+                    status.setPhase((String) progress.get("phase"));
+                    status.setBlocksDone(toLong(progress.get("blocks_done")));
+                    status.setBlocksTotal(toLong(progress.get("blocks_total")));
+                    status.setTuplesDone(toLong(progress.get("tuples_done")));
+                    status.setTuplesTotal(toLong(progress.get("tuples_total")));
+                }
+            }
+
+            // A queued, running or failed build explains a missing or invalid index
+            BuildStatus build = builds.get(fieldId);
+            if (build != null && build.state() != IndexBuildState.READY && state != IndexBuildState.READY) {
+                state = build.state();
+                status.setError(build.error());
+            }
+            status.setState(state);
+            statuses.add(status);
+        }
+        return statuses;
+    }
+
+    private Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
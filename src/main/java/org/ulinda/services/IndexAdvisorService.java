@@ -0,0 +1,257 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.ulinda.dto.IndexRecommendationDto;
+import org.ulinda.dto.SearchFieldIdentifier;
+import org.ulinda.dto.SearchParameter;
+import org.ulinda.entities.Field;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records which custom fields the record search sorts and filters on and how long those searches take, and
+ * periodically turns that into index recommendations for fields that are not indexed yet. The estimated benefit
+ * is the observed search time on the field, weighted by the share of sequential scans on the records table;
+ * small tables are left out because a sequential scan is cheap there. Optionally the recommended indexes are
+ * created through the indexed field option.
+ * <p>
+ * Each node counts its own searches in memory and adds them to index_advisor_usage on every analysis, so the
+ * thresholds apply to the searches of the whole cluster. Indexes are created by one node at a time.
+ */
+@Service
+@Slf4j
+public class IndexAdvisorService {
+
+    private record Usage(UUID modelId, UUID fieldId, String usage) {
+    }
+
+    private static class UsageStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+    }
+
+    // Bounds the number of tracked (model, field, usage) combinations
+    private static final int MAX_TRACKED_USAGES = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FieldIndexService fieldIndexService;
+
+    @Autowired
+    private ModelMetadataCache modelMetadataCache;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${ulinda.index-advisor.interval-ms:900000}")
+    private long intervalMs;
+
+    @Value("${ulinda.index-advisor.min-table-rows:10000}")
+    private long minTableRows;
+
+    @Value("${ulinda.index-advisor.min-saved-ms:1000}")
+    private long minSavedMs;
+
+    @Value("${ulinda.index-advisor.auto-create:false}")
+    private boolean autoCreate;
+
+    @Value("${ulinda.index-advisor.auto-create-min-saved-ms:60000}")
+    private long autoCreateMinSavedMs;
+
+    private final Map<Usage, UsageStats> usages = new ConcurrentHashMap<>();
+
+    private volatile List<IndexRecommendationDto> recommendations = List.of();
+
+    /**
+     * Records one record search. Only custom fields are tracked, and only predicates an index can serve.
+     */
+    public void recordQuery(UUID modelId, String sortField, List<SearchParameter> searchParameters, long durationNanos) {
+        if (isUuid(sortField)) {
+            record(new Usage(modelId, UUID.fromString(sortField), "SORT"), durationNanos);
+        }
+        if (searchParameters == null) {
+            return;
+        }
+        for (SearchParameter searchParameter : searchParameters) {
+            if (searchParameter.getSearchFieldIdentifier() != SearchFieldIdentifier.CUSTOM_FIELD || searchParameter.getFieldID() == null) {
+                continue;
+            }
+            switch (searchParameter.getSearchType()) {
+                // Negations and booleans match most rows, an index does not help them
+                case TEXT_NOT_CONTAINS, TEXT_NOT_EQUALS, BOOLEAN_TRUE, BOOLEAN_FALSE -> {
+                }
+                default -> record(new Usage(modelId, searchParameter.getFieldID(), searchParameter.getSearchType().name()), durationNanos);
+            }
+        }
+    }
+
+    private void record(Usage usage, long durationNanos) {
+        UsageStats stats = usages.get(usage);
+        if (stats == null) {
+            if (usages.size() >= MAX_TRACKED_USAGES) {
+                return;
+            }
+            stats = usages.computeIfAbsent(usage, u -> new UsageStats());
+        }
+        stats.count.increment();
+        stats.totalNanos.add(durationNanos);
+    }
+
+    private boolean isUuid(String value) {
+        try {
+            UUID.fromString(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public List<IndexRecommendationDto> getRecommendations() {
+        return recommendations;
+    }
+
+    @Scheduled(initialDelayString = "${ulinda.index-advisor.interval-ms:900000}",
+            fixedDelayString = "${ulinda.index-advisor.interval-ms:900000}")
+    public void analyze() {
+        flushUsages();
+
+        // Combine the usages of all nodes per field
+        Map<UUID, IndexRecommendationDto> byField = new HashMap<>();
+        Map<UUID, Long> totalNanosByField = new HashMap<>();
+        jdbcTemplate.query("SELECT model_id, field_id, usage, query_count, total_nanos FROM index_advisor_usage", rs -> {
+            UUID modelId = rs.getObject("model_id", UUID.class);
+            UUID fieldId = rs.getObject("field_id", UUID.class);
+            IndexRecommendationDto recommendation = byField.computeIfAbsent(fieldId, id -> {
+                IndexRecommendationDto dto = new IndexRecommendationDto();
+                dto.setModelId(modelId);
+                dto.setFieldId(id);
+                return dto;
+            });
+            recommendation.getUsages().add(rs.getString("usage"));
+            // A search that sorts and filters on the field is counted once per usage; good enough for ranking
+            recommendation.setQueryCount(recommendation.getQueryCount() + rs.getLong("query_count"));
+            totalNanosByField.merge(fieldId, rs.getLong("total_nanos"), Long::sum);
+        });
+
+        Map<String, Map<String, Object>> tableStats = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                "SELECT relname, seq_scan, COALESCE(idx_scan, 0) AS idx_scan, n_live_tup, pg_total_relation_size(relid) AS table_bytes " +
+                        "FROM pg_stat_user_tables WHERE relname LIKE 'records\\_%'")) {
+            tableStats.put((String) row.get("relname"), row);
+        }
+
+        List<IndexRecommendationDto> result = new ArrayList<>();
+        Map<UUID, Field> autoCreateFields = new HashMap<>();
+        for (IndexRecommendationDto recommendation : byField.values()) {
+            Field field = findField(recommendation.getModelId(), recommendation.getFieldId());
+            if (field == null || field.getIsIndexed()) {
+                continue;
+            }
+            Map<String, Object> stats = tableStats.get("records_" + recommendation.getModelId().toString().replace("-", "_"));
+            if (stats == null) {
+                continue;
+            }
+            long tableRows = ((Number) stats.get("n_live_tup")).longValue();
+            if (tableRows < minTableRows) {
+                continue;
+            }
+            long seqScans = ((Number) stats.get("seq_scan")).longValue();
+            long indexScans = ((Number) stats.get("idx_scan")).longValue();
+            double seqScanShare = seqScans + indexScans > 0 ? (double) seqScans / (seqScans + indexScans) : 1.0;
+            long totalMs = totalNanosByField.get(recommendation.getFieldId()) / 1_000_000;
+
+            recommendation.setFieldName(field.getName());
+            recommendation.setTableRows(tableRows);
+            recommendation.setTableBytes(((Number) stats.get("table_bytes")).longValue());
+            recommendation.setSeqScans(seqScans);
+            recommendation.setIndexScans(indexScans);
+            recommendation.setAverageQueryMs(recommendation.getQueryCount() > 0 ? (double) totalMs / recommendation.getQueryCount() : 0);
+            recommendation.setEstimatedSavedMs((long) (totalMs * seqScanShare));
+            if (recommendation.getEstimatedSavedMs() < minSavedMs) {
+                continue;
+            }
+            if (autoCreate && recommendation.getEstimatedSavedMs() >= autoCreateMinSavedMs) {
+                autoCreateFields.put(field.getId(), field);
+            }
+            result.add(recommendation);
+        }
+
+        // Every node computes the recommendations from the shared usage; one node creates the indexes
+        jobCoordinator.run("index-advisor-auto-create", Duration.ofMillis(intervalMs / 2), () -> {
+            for (IndexRecommendationDto recommendation : result) {
+                Field field = autoCreateFields.get(recommendation.getFieldId());
+                if (field != null && markIndexed(field, recommendation.getEstimatedSavedMs())) {
+                    recommendation.setAutoCreated(true);
+                }
+            }
+            // Usage of deleted fields is never recommended, drop it
+            jdbcTemplate.update("DELETE FROM index_advisor_usage u WHERE NOT EXISTS (SELECT 1 FROM fields f WHERE f.id = u.field_id)");
+        });
+        result.sort(Comparator.comparingLong(IndexRecommendationDto::getEstimatedSavedMs).reversed());
+        recommendations = List.copyOf(result);
+    }
+
+    /**
+     * Adds the usage recorded on this node since the last flush to the shared counters.
+     */
+    private void flushUsages() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Usage, UsageStats> entry : usages.entrySet()) {
+            long count = entry.getValue().count.sumThenReset();
+            long totalNanos = entry.getValue().totalNanos.sumThenReset();
+            if (count > 0) {
+                Usage usage = entry.getKey();
+                batch.add(new Object[]{usage.modelId(), usage.fieldId(), usage.usage(), count, totalNanos});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Sorted on the key so that nodes flushing at the same time lock the rows in the same order
+        batch.sort(Comparator.comparing((Object[] row) -> (UUID) row[1]).thenComparing(row -> (String) row[2]));
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO index_advisor_usage (model_id, field_id, usage, query_count, total_nanos) VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (field_id, usage) DO UPDATE SET
+                    query_count = index_advisor_usage.query_count + EXCLUDED.query_count,
+                    total_nanos = index_advisor_usage.total_nanos + EXCLUDED.total_nanos
+                """, batch);
+    }
+
+    private Field findField(UUID modelId, UUID fieldId) {
+        for (Field field : modelMetadataCache.getFields(modelId)) {
+            if (field.getId().equals(fieldId)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the field as indexed and schedules the build, unless it was marked in the meantime.
+     */
+    private boolean markIndexed(Field field, long estimatedSavedMs) {
+        if (jdbcTemplate.update("UPDATE fields SET is_indexed = true WHERE id = ? AND NOT is_indexed", field.getId()) == 0) {
+            return false;
+        }
+        log.info("Index advisor marks field {} ({}) as indexed, estimated saving {} ms",
+                field.getName(), field.getId(), estimatedSavedMs);
+        modelMetadataCache.invalidate();
+        fieldIndexService.scheduleBuild(field);
+        return true;
+    }
+}
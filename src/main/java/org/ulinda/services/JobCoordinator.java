@@ -0,0 +1,195 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.ulinda.dto.JobStatusDto;
+import org.ulinda.enums.JobOutcome;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs cluster-wide scheduled jobs on one node at a time. A node runs a job only while it holds the job's
+ * session level advisory lock, taken with pg_try_advisory_lock on a connection kept for the run; the other
+ * nodes skip the tick. Runs are recorded in scheduled_jobs, which also stops a node from repeating a job
+ * another node ran less than minInterval ago. A lock is released when the run ends, and by PostgreSQL when
+ * the connection is lost. Jobs that work on node-local state, such as flushing in-memory buffers, must not
+ * use this.
+ */
+@Service
+@Slf4j
+public class JobCoordinator {
+
+    // First key of the two-key advisory locks of scheduled jobs, "ULJB"
+    private static final int LOCK_CLASS = 0x554C4A42;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final String nodeId = getNodeId();
+    private volatile boolean shuttingDown;
+
+    private static String getNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+
+    /**
+     * Runs the job unless another node is running it or ran it less than minInterval ago. Exceptions of the job
+     * are logged and recorded, not thrown.
+     */
+    public void run(String jobName, Duration minInterval, Runnable job) {
+        coordinate(jobName, minInterval, () -> {
+            job.run();
+            return null;
+        });
+    }
+
+    /**
+     * Like {@link #run}, for a job that returns the number of items it processed. The count of the last run and
+     * the total are recorded with the run.
+     */
+    public void runCounting(String jobName, Duration minInterval, LongSupplier job) {
+        coordinate(jobName, minInterval, job::getAsLong);
+    }
+
+    private void coordinate(String jobName, Duration minInterval, Supplier<Long> job) {
+        if (shuttingDown) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            if (!tryLock(connection, jobName)) {
+                log.debug("Skipping job {}, running on another node", jobName);
+                return;
+            }
+            try {
+                if (ranWithin(jobName, minInterval)) {
+                    log.debug("Skipping job {}, ran less than {} ago", jobName, minInterval);
+                    return;
+                }
+                execute(jobName, job);
+            } finally {
+                unlock(connection, jobName);
+            }
+        } catch (SQLException e) {
+            log.error("Could not coordinate job {}: {}", jobName, e.getMessage());
+        }
+    }
+
+    private boolean tryLock(Connection connection, String jobName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            statement.setInt(1, LOCK_CLASS);
+            statement.setInt(2, jobName.hashCode());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void unlock(Connection connection, String jobName) throws SQLException {
+        boolean unlocked = false;
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            statement.setInt(1, LOCK_CLASS);
+            statement.setInt(2, jobName.hashCode());
+            try (ResultSet rs = statement.executeQuery()) {
+                unlocked = rs.next() && rs.getBoolean(1);
+            }
+        } finally {
+            if (!unlocked) {
+                // A pooled connection must not keep the lock, dropping it releases the lock
+                log.warn("Could not release the lock of job {}, discarding the connection", jobName);
+                connection.abort(Runnable::run);
+            }
+        }
+    }
+
+    private boolean ranWithin(String jobName, Duration minInterval) {
+        List<Boolean> recent = jdbcTemplate.queryForList(
+                "SELECT last_started_at > now() - make_interval(secs => ?) FROM scheduled_jobs WHERE job_name = ?",
+                Boolean.class, minInterval.toMillis() / 1000.0, jobName);
+        return !recent.isEmpty() && Boolean.TRUE.equals(recent.get(0));
+    }
+
+    private void execute(String jobName, Supplier<Long> job) {
+        jdbcTemplate.update("INSERT INTO scheduled_jobs (job_name, node_id, last_started_at, last_finished_at, last_duration_ms, last_outcome, last_error, last_processed) " +
+                        "VALUES (?, ?, now(), NULL, NULL, ?, NULL, NULL) " +
+                        "ON CONFLICT (job_name) DO UPDATE SET node_id = EXCLUDED.node_id, last_started_at = EXCLUDED.last_started_at, " +
+                        "last_finished_at = NULL, last_duration_ms = NULL, last_outcome = EXCLUDED.last_outcome, last_error = NULL, last_processed = NULL",
+                jobName, nodeId, JobOutcome.RUNNING.name());
+        long start = System.nanoTime();
+        JobOutcome outcome = JobOutcome.SUCCEEDED;
+        String error = null;
+        Long processed = null;
+        try {
+            processed = job.get();
+        } catch (Exception e) {
+            log.error("Job {} failed", jobName, e);
+            outcome = JobOutcome.FAILED;
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            if (error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        jdbcTemplate.update("UPDATE scheduled_jobs SET last_finished_at = now(), last_duration_ms = ?, last_outcome = ?, last_error = ?, " +
+                        "run_count = run_count + 1, failure_count = failure_count + ?, last_processed = ?, " +
+                        "total_processed = total_processed + COALESCE(?, 0) WHERE job_name = ?",
+                durationMs, outcome.name(), error, outcome == JobOutcome.FAILED ? 1 : 0, processed, processed, jobName);
+        log.debug("Job {} {} in {} ms", jobName, outcome, durationMs);
+    }
+
+    /**
+     * Returns the last run of every job, across all nodes.
+     */
+    public List<JobStatusDto> getJobStatuses() {
+        return jdbcTemplate.query("SELECT job_name, node_id, last_started_at, last_finished_at, last_duration_ms, last_outcome, last_error, " +
+                "run_count, failure_count, last_processed, total_processed FROM scheduled_jobs ORDER BY job_name", (rs, rowNum) -> {
+            JobStatusDto status = new JobStatusDto();
+            status.setJobName(rs.getString(1));
+            status.setNodeId(rs.getString(2));
+            Timestamp startedAt = rs.getTimestamp(3);
+            status.setLastStartedAt(startedAt != null ? startedAt.toInstant() : null);
+            Timestamp finishedAt = rs.getTimestamp(4);
+            status.setLastFinishedAt(finishedAt != null ? finishedAt.toInstant() : null);
+            status.setLastDurationMs(rs.getObject(5, Long.class));
+            status.setLastOutcome(JobOutcome.valueOf(rs.getString(6)));
+            status.setLastError(rs.getString(7));
+            status.setRunCount(rs.getLong(8));
+            status.setFailureCount(rs.getLong(9));
+            status.setLastProcessed(rs.getObject(10, Long.class));
+            status.setTotalProcessed(rs.getLong(11));
+            return status;
+        });
+    }
+
+    /**
+     * Stops starting new runs; a running job releases its lock when it returns.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        shuttingDown = true;
+    }
+}
@@ -0,0 +1,167 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.ulinda.dto.SecuritySettingsDto;
+import org.ulinda.entities.User;
+import org.ulinda.exceptions.ErrorCode;
+import org.ulinda.exceptions.FrontendException;
+import org.ulinda.exceptions.ServerBusyException;
+import org.ulinda.repositories.UserRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Username and password login. The user row is read once and the security settings come from the cache; the
+ * lockout bookkeeping is a single UPDATE, and on success it runs in one transaction with the session insert.
+ * BCrypt runs on the hashing pool outside any transaction, so it does not hold a connection.
+ */
+@Service
+@Slf4j
+public class LoginService {
+
+    // Used when the settings have no lockout time
+    private static final int DEFAULT_LOCKOUT_MINUTES = 15;
+
+    public record LoginResult(User user, UUID sessionId) {
+    }
+
+    private final UserRepository userRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final SecuritySettingsService securitySettingsService;
+    private final SessionService sessionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public LoginService(UserRepository userRepository,
+                        PasswordHashingService passwordHashingService,
+                        SecuritySettingsService securitySettingsService,
+                        SessionService sessionService,
+                        JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.securitySettingsService = securitySettingsService;
+        this.sessionService = sessionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Checks the credentials and creates a session. A locked account, invalid credentials, and a password that
+     * must be changed are reported as a {@link FrontendException}; no session is created for those.
+     */
+    public LoginResult login(String username, String password, String ipAddress) {
+        User user = userRepository.findByUsername(username.toLowerCase()).orElse(null);
+        Instant now = Instant.now();
+
+        if (user != null && user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(now)) {
+            throw new FrontendException("Account is temporarily locked due to too many failed login attempts. Please try again later.", ErrorCode.ACCOUNT_LOCKED, true);
+        }
+
+        if (user == null || !passwordHashingService.matches(password, user.getPassword())) {
+            if (user != null) {
+                recordFailedLogin(user, now);
+            }
+            throw new FrontendException("Invalid Credentials", ErrorCode.INVALID_LOGIN_CREDENTIALS, true);
+        }
+
+        String rehashedPassword = rehash(user, password);
+        boolean passwordExpired = isPasswordExpired(user, securitySettingsService.getSecuritySettings(), now);
+        boolean mustChangePassword = user.isMustChangePassword() || passwordExpired;
+        UUID sessionId = transactionTemplate.execute(status -> {
+            resetFailedLogins(user, rehashedPassword);
+            return mustChangePassword ? null : sessionService.createSession(user.getId(), ipAddress);
+        });
+
+        if (user.isMustChangePassword()) {
+            throw new FrontendException("User must change password", ErrorCode.USER_MUST_CHANGE_PASSWORD, true);
+        }
+        if (passwordExpired) {
+            throw new FrontendException("Your password has expired. Please change your password.", ErrorCode.USER_MUST_CHANGE_PASSWORD, true);
+        }
+        return new LoginResult(user, sessionId);
+    }
+
+    /**
+     * Returns a new hash of the password when the stored one was made with another BCrypt strength, so stored
+     * hashes follow the calibrated strength. Skipped when the hashing pool is busy; the next login retries.
+     */
+    private String rehash(User user, String password) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return null;
+        }
+        try {
+            return passwordHashingService.encode(password);
+        } catch (ServerBusyException e) {
+            log.debug("Hashing pool busy, not rehashing the password of user: {}", user.getUsername());
+            return null;
+        }
+    }
+
+    /**
+     * Counts a failed login and locks the account when it reaches the maximum attempts. An expired lock starts
+     * the count again. The count is computed from the stored row, so concurrent failures are all counted.
+     */
+    private void recordFailedLogin(User user, Instant now) {
+        SecuritySettingsDto settings = securitySettingsService.getSecuritySettings();
+        Integer maxAttempts = settings.getMaximumLoginAttempts();
+        Integer lockoutMinutes = settings.getAfterMaxAttemptsLockoutTimeMinutes();
+        if (lockoutMinutes == null) {
+            lockoutMinutes = DEFAULT_LOCKOUT_MINUTES;
+        }
+        Timestamp nowTimestamp = Timestamp.from(now);
+        Timestamp lockUntil = Timestamp.from(now.plusSeconds(lockoutMinutes * 60L));
+
+        String attempts = "CASE WHEN account_locked_until <= ? THEN 1 ELSE COALESCE(failed_login_attempts, 0) + 1 END";
+        String sql = "UPDATE users SET failed_login_attempts = " + attempts + ", last_failed_login_attempt = ?, " +
+                "account_locked_until = CASE WHEN " + attempts + " >= ? THEN ? " +
+                "WHEN account_locked_until <= ? THEN NULL ELSE account_locked_until END " +
+                "WHERE id = ? RETURNING account_locked_until";
+        List<Timestamp> lockedUntil = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getTimestamp(1),
+                nowTimestamp, nowTimestamp, nowTimestamp, maxAttempts != null ? maxAttempts : Integer.MAX_VALUE,
+                lockUntil, nowTimestamp, user.getId());
+        if (!lockedUntil.isEmpty() && lockedUntil.get(0) != null && lockedUntil.get(0).toInstant().isAfter(now)) {
+            log.warn("Account locked for user: {} until {}", user.getUsername(), lockedUntil.get(0).toInstant());
+        }
+    }
+
+    /**
+     * Clears the failed logins, which also lifts an expired lock, and stores the rehashed password in the same
+     * statement. Skipped when there is nothing to clear and no rehash, the usual case.
+     */
+    private void resetFailedLogins(User user, String rehashedPassword) {
+        boolean clean = (user.getFailedLoginAttempts() == null || user.getFailedLoginAttempts() == 0)
+                && user.getLastFailedLoginAttempt() == null && user.getAccountLockedUntil() == null;
+        if (clean && rehashedPassword == null) {
+            return;
+        }
+        // Only replaces the hash that was checked, not a password changed in the meantime
+        jdbcTemplate.update("UPDATE users SET failed_login_attempts = 0, last_failed_login_attempt = NULL, " +
+                "account_locked_until = NULL, password = CASE WHEN password = ? THEN COALESCE(?, password) " +
+                "ELSE password END WHERE id = ?", user.getPassword(), rehashedPassword, user.getId());
+        if (user.getAccountLockedUntil() != null) {
+            log.info("Account unlocked for user: {}", user.getUsername());
+        }
+    }
+
+    private static boolean isPasswordExpired(User user, SecuritySettingsDto settings, Instant now) {
+        // If password expiration is not enabled, password never expires
+        if (!settings.getPasswordExpiration()) {
+            return false;
+        }
+        // If passwordChangedAt is null (legacy users), consider it expired to force update
+        if (user.getPasswordChangedAt() == null) {
+            return true;
+        }
+        long daysSincePasswordChange = Duration.between(user.getPasswordChangedAt(), now).toDays();
+        return daysSincePasswordChange >= settings.getPasswordExpirationDays();
+    }
+}
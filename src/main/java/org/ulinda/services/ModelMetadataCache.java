@@ -0,0 +1,185 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.ulinda.entities.Field;
+import org.ulinda.entities.Model;
+import org.ulinda.entities.ModelLink;
+import org.ulinda.enums.CacheInvalidationType;
+import org.ulinda.repositories.FieldRepository;
+import org.ulinda.repositories.ModelLinkRepository;
+import org.ulinda.repositories.ModelRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process copy of the models, their fields and the model links, so record requests resolve schema
+ * information without reading the catalog tables. The whole catalog is loaded in bulk into an immutable
+ * snapshot. Every schema change bumps the version and drops the snapshot; the next read loads a new one.
+ * The entities in a snapshot are shared and must not be modified.
+ */
+@Service
+@Slf4j
+public class ModelMetadataCache {
+
+    // Fields in creation order, the order they were defined in
+    private static final Comparator<Field> FIELD_ORDER = Comparator
+            .comparing(Field::getCreatedAt, Comparator.nullsLast(Comparator.<Instant>naturalOrder()))
+            .thenComparing(Field::getId);
+
+    // Models by name, so every node and every snapshot lists them the same way
+    private static final Comparator<Model> MODEL_ORDER = Comparator
+            .comparing(Model::getName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparing(Model::getId);
+
+    private record Snapshot(long version, Map<UUID, Model> models, List<Model> orderedModels,
+                            Map<UUID, List<Field>> fieldsByModelId, Map<UUID, ModelLink> modelLinks, Map<UUID, List<ModelLink>> modelLinksByModelId) {
+    }
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private FieldRepository fieldRepository;
+
+    @Autowired
+    private ModelLinkRepository modelLinkRepository;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    void registerInvalidation() {
+        cacheInvalidationBus.register(CacheInvalidationType.MODEL_METADATA, id -> bumpVersion());
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Optional<Model> getModel(UUID modelId) {
+        return Optional.ofNullable(getSnapshot().models().get(modelId));
+    }
+
+    public boolean modelExists(UUID modelId) {
+        return getSnapshot().models().containsKey(modelId);
+    }
+
+    /**
+     * Returns all models, ordered by name.
+     */
+    public List<Model> getModels() {
+        return getSnapshot().orderedModels();
+    }
+
+    /**
+     * Returns the fields of a model in creation order, or an empty list for an unknown model.
+     */
+    public List<Field> getFields(UUID modelId) {
+        return getSnapshot().fieldsByModelId().getOrDefault(modelId, List.of());
+    }
+
+    public Optional<ModelLink> getModelLink(UUID modelLinkId) {
+        return Optional.ofNullable(getSnapshot().modelLinks().get(modelLinkId));
+    }
+
+    /**
+     * Returns the links where the model is either side.
+     */
+    public List<ModelLink> getModelLinks(UUID modelId) {
+        return getSnapshot().modelLinksByModelId().getOrDefault(modelId, List.of());
+    }
+
+    /**
+     * Loads the snapshot, so the first record request does not pay for it.
+     */
+    public void warmUp() {
+        getSnapshot();
+    }
+
+    /**
+     * Drops the snapshot after a schema change. When called inside a transaction it is dropped again when the
+     * transaction completes, so a snapshot loaded from uncommitted or rolled back changes is not kept.
+     * The other nodes drop theirs when the transaction commits.
+     */
+    public void invalidate() {
+        bumpVersion();
+        cacheInvalidationBus.publish(CacheInvalidationType.MODEL_METADATA, null);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bumpVersion();
+                }
+            });
+        }
+    }
+
+    private void bumpVersion() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null) {
+                long loadVersion = version.get();
+                current = load(loadVersion);
+                // Keep it only when no schema change happened while loading
+                if (version.get() == loadVersion) {
+                    snapshot = current;
+                }
+            }
+            return current;
+        }
+    }
+
+    private Snapshot load(long loadVersion) {
+        Map<UUID, Model> models = new HashMap<>();
+        modelRepository.findAll().forEach(model -> models.put(model.getId(), model));
+        List<Model> orderedModels = new ArrayList<>(models.values());
+        orderedModels.sort(MODEL_ORDER);
+
+        Map<UUID, List<Field>> fieldsByModelId = new HashMap<>();
+        fieldRepository.findAll().forEach(field -> fieldsByModelId.computeIfAbsent(field.getModelId(), id -> new ArrayList<>()).add(field));
+        fieldsByModelId.replaceAll((modelId, fields) -> {
+            fields.sort(FIELD_ORDER);
+            return List.copyOf(fields);
+        });
+
+        Map<UUID, ModelLink> modelLinks = new HashMap<>();
+        Map<UUID, List<ModelLink>> modelLinksByModelId = new HashMap<>();
+        for (ModelLink modelLink : modelLinkRepository.findAll()) {
+            modelLinks.put(modelLink.getId(), modelLink);
+            modelLinksByModelId.computeIfAbsent(modelLink.getModel1Id(), id -> new ArrayList<>()).add(modelLink);
+            if (!modelLink.getModel2Id().equals(modelLink.getModel1Id())) {
+                modelLinksByModelId.computeIfAbsent(modelLink.getModel2Id(), id -> new ArrayList<>()).add(modelLink);
+            }
+        }
+        modelLinksByModelId.replaceAll((modelId, links) -> List.copyOf(links));
+
+        log.debug("Loaded model metadata version {}: {} models, {} model links", loadVersion, models.size(), modelLinks.size());
+        return new Snapshot(loadVersion, Map.copyOf(models), List.copyOf(orderedModels), Map.copyOf(fieldsByModelId), Map.copyOf(modelLinks),
+                Map.copyOf(modelLinksByModelId));
+    }
+}
@@ -2,6 +2,7 @@ package org.ulinda.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -9,6 +10,7 @@ import org.ulinda.dto.*;
 import org.ulinda.entities.Field;
 import org.ulinda.entities.Model;
 import org.ulinda.entities.ModelLink;
+import org.ulinda.enums.CountMode;
 import org.ulinda.enums.FieldType;
 import org.ulinda.enums.ModelPermission;
 import org.ulinda.enums.QueryType;
@@ -23,6 +25,7 @@ import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Predicate;
 import org.ulinda.dto.CursorInfo;
 import org.ulinda.utils.CursorUtils;
 
@@ -42,10 +45,38 @@ public class ModelService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
     @Autowired
-    private UserService userService;
+    private RecordQueryPlanCache recordQueryPlanCache;
+
+    @Autowired
+    private RecordCountService recordCountService;
+
+    @Autowired
+    private ModelStatsService modelStatsService;
+
+    @Autowired
+    private FieldIndexService fieldIndexService;
+
+    @Autowired
+    private IndexAdvisorService indexAdvisorService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private UserPermissionCache userPermissionCache;
+
+    @Autowired
+    private ModelMetadataCache modelMetadataCache;
+
+    @Value("${ulinda.full-text.config:simple}")
+    private String fullTextConfig;
 
     @Transactional
     public void createModel(CreateModelRequest request, UUID ownerId) {
+        modelMetadataCache.invalidate();
         Model model = new Model();
         model.setDescription(request.getDescription());
         model.setName(request.getName());
@@ -63,11 +94,19 @@ public class ModelService {
             field.setName(fieldDto.getName());
             field.setIsRequired(fieldDto.getIsRequired());
             field.setType(fieldDto.getType());
+            field.setIsIndexed(Boolean.TRUE.equals(fieldDto.getIsIndexed()));
             field.setModelId(modelId);
             fieldRepository.save(field);
         }
 
         createFieldTables(request, modelId);
+        modelStatsService.initialize(modelId);
+        fieldIndexService.scheduleSortIndexes(modelId);
+        for (Field field : fieldRepository.findByModelId(modelId)) {
+            if (field.getIsIndexed()) {
+                fieldIndexService.scheduleBuild(field);
+            }
+        }
 
     }
 
@@ -134,9 +173,10 @@ public class ModelService {
     @Transactional(readOnly = true)
     public GetModelsResponse getModels(UUID userId) {
         GetModelsResponse response = new GetModelsResponse();
-        for(Model model: modelRepository.findAll()) {
+        Predicate<UUID> canViewRecords = userPermissionCache.getModelFilter(userId, ModelPermission.VIEW_RECORDS);
+        for(Model model: modelMetadataCache.getModels()) {
 
-            if (!userHasGivenPermissionOnModel(userId, model.getId(), ModelPermission.VIEW_RECORDS)) {
+            if (!canViewRecords.test(model.getId())) {
                 continue;
             }
 
@@ -147,7 +187,7 @@ public class ModelService {
             response.getModels().add(modelDto);
 
             //Get Field Info
-            List<Field> fieldOptional = fieldRepository.findByModelId(model.getId());
+            List<Field> fieldOptional = modelMetadataCache.getFields(model.getId());
             for (Field field: fieldOptional) {
                 FieldDto fieldDto = new FieldDto();
                 fieldDto.setId(field.getId());
@@ -155,6 +195,7 @@ public class ModelService {
                 fieldDto.setName(field.getName());
                 fieldDto.setType(field.getType());
                 fieldDto.setIsRequired(field.getIsRequired());
+                fieldDto.setIsIndexed(field.getIsIndexed());
                 modelDto.getFields().add(fieldDto);
             }
         }
@@ -162,26 +203,13 @@ public class ModelService {
     }
 
     private boolean userHasGivenPermissionOnModel(UUID userId, UUID modelId, ModelPermission checkPermission) {
-        Model model = modelRepository.findById(modelId).orElseThrow(() -> new RuntimeException("Model with id " + modelId + " does not exist"));
-        boolean hasPermission = false;
-        GetUserResponse user = userService.getUser(userId);
-        GetUserModelPermissionsResponse userPermissions = userService.getUserModelPermissions(userId);
-        if (user.isAdminUser()) {
-            hasPermission = true;
-        } else {
-            for (UserModelPermissionDto permission : userPermissions.getUserModelPermissions()) {
-                if (permission.getModelId().equals(model.getId()) && permission.getPermission() == checkPermission) {
-                    hasPermission = true;
-                }
-            }
-        }
-        return hasPermission;
+        return userPermissionCache.hasPermission(userId, modelId, checkPermission);
     }
 
     @Transactional(readOnly = true)
     public GetModelResponse getModel(UUID modelId, UUID userId) {
         GetModelResponse response = new GetModelResponse();
-        Model model = modelRepository.findById(modelId).orElseThrow(() -> new RuntimeException("Model not found: " + modelId));
+        Model model = modelMetadataCache.getModel(modelId).orElseThrow(() -> new RuntimeException("Model not found: " + modelId));
 
         boolean hasPermission = userHasGivenPermissionOnModel(userId, model.getId(), ModelPermission.VIEW_RECORDS);
         if (!hasPermission) {
@@ -196,7 +224,7 @@ public class ModelService {
         response.setModel(modelDto);
 
         //Get Field Info
-        List<Field> fieldOptional = fieldRepository.findByModelId(model.getId());
+        List<Field> fieldOptional = modelMetadataCache.getFields(model.getId());
         for (Field field: fieldOptional) {
             FieldDto fieldDto = new FieldDto();
             fieldDto.setId(field.getId());
@@ -204,30 +232,32 @@ public class ModelService {
             fieldDto.setName(field.getName());
             fieldDto.setType(field.getType());
             fieldDto.setIsRequired(field.getIsRequired());
+            fieldDto.setIsIndexed(field.getIsIndexed());
             modelDto.getFields().add(fieldDto);
         }
 
-        List<ModelLink> modelLinks = modelLinkRepository.findByEitherModelId(modelId);
+        Predicate<UUID> canViewRecords = userPermissionCache.getModelFilter(userId, ModelPermission.VIEW_RECORDS);
+        List<ModelLink> modelLinks = modelMetadataCache.getModelLinks(modelId);
         for (ModelLink modelLink: modelLinks) {
             if (modelId.equals(modelLink.getModel1Id())) {
-                Model targetModel = modelRepository.findById(modelLink.getModel2Id()).orElseThrow(() -> new RuntimeException("Model not found: " + modelLink.getModel2Id()));
+                Model targetModel = modelMetadataCache.getModel(modelLink.getModel2Id()).orElseThrow(() -> new RuntimeException("Model not found: " + modelLink.getModel2Id()));
                 ModelLinkTarget modelLinkTarget = new ModelLinkTarget();
                 modelLinkTarget.setTargetModelId(modelLink.getModel2Id());
                 modelLinkTarget.setCan_have_unlimited_targets(modelLink.isModel1CanHaveUnlimitedModel2s());
                 modelLinkTarget.setCan_have_targets_count(modelLink.getModel1CanHaveSoManyModel2sCount());
                 modelLinkTarget.setModelLinkId(modelLink.getId());
                 modelLinkTarget.setTargetModelName(targetModel.getName());
-                if (userHasGivenPermissionOnModel(userId, targetModel.getId(), ModelPermission.VIEW_RECORDS)) {
+                if (canViewRecords.test(targetModel.getId())) {
                     response.getModelLinkTargets().add(modelLinkTarget);
                 }
             } else if (modelId.equals(modelLink.getModel2Id())) {
-                Model targetModel = modelRepository.findById(modelLink.getModel1Id()).orElseThrow(() -> new RuntimeException("Model not found: " + modelLink.getModel2Id()));
+                Model targetModel = modelMetadataCache.getModel(modelLink.getModel1Id()).orElseThrow(() -> new RuntimeException("Model not found: " + modelLink.getModel2Id()));
                 ModelLinkTarget modelLinkTarget = new ModelLinkTarget();
                 modelLinkTarget.setTargetModelId(modelLink.getModel1Id());
                 modelLinkTarget.setCan_have_unlimited_targets(modelLink.isModel2CanHaveUnlimitedModel1s());
                 modelLinkTarget.setCan_have_targets_count(modelLink.getModel2CanHaveSoManyModel1sCount());
                 modelLinkTarget.setModelLinkId(modelLink.getId());
-                if (userHasGivenPermissionOnModel(userId, targetModel.getId(), ModelPermission.VIEW_RECORDS)) {
+                if (canViewRecords.test(targetModel.getId())) {
                     modelLinkTarget.setTargetModelName(targetModel.getName());
                 }
 
@@ -242,7 +272,7 @@ public class ModelService {
     @Transactional
     public UUID createRecord(UUID userId , UUID modelId, Map<UUID, Object> fieldValues) {
         // Validate model exists
-        if (!modelRepository.existsById(modelId)) {
+        if (!modelMetadataCache.modelExists(modelId)) {
             throw new IllegalArgumentException("Model not found: " + modelId);
         }
 
@@ -253,7 +283,7 @@ public class ModelService {
         }
 
         // Get fields for validation and column mapping
-        List<Field> fields = fieldRepository.findByModelId(modelId);
+        List<Field> fields = modelMetadataCache.getFields(modelId);
         if (fields.isEmpty()) {
             throw new IllegalStateException("No fields found for model: " + modelId);
         }
@@ -309,6 +339,8 @@ public class ModelService {
 
         // Execute insert and get the generated ID
         UUID recordId = jdbcTemplate.queryForObject(insertSql.toString(), UUID.class, values.toArray());
+        modelStatsService.add(modelId, 1);
+        searchIndexService.indexRecord(modelId, recordId);
 
         log.debug("Created record with ID: {} in table: {}", recordId, tableName);
         return recordId;
@@ -324,7 +356,7 @@ public class ModelService {
         }
 
         //Check if UUID exist
-        modelRepository.findById(modelId).orElseThrow(() -> new RuntimeException("Model not found: " + modelId));
+        modelMetadataCache.getModel(modelId).orElseThrow(() -> new RuntimeException("Model not found: " + modelId));
 
         // Validate input
         if (recordId == null) {
@@ -335,7 +367,7 @@ public class ModelService {
         }
 
         // Get fields for validation
-        List<Field> fields = fieldRepository.findByModelId(modelId);
+        List<Field> fields = modelMetadataCache.getFields(modelId);
         if (fields.isEmpty()) {
             throw new IllegalStateException("No fields found for model: " + modelId);
         }
@@ -385,6 +417,7 @@ public class ModelService {
         if (rowsAffected == 0) {
             throw new IllegalArgumentException("Record not found or no changes made: " + recordId);
         }
+        searchIndexService.indexRecord(modelId, recordId);
 
         log.debug("Updated record with ID: {} in table: {}, rows affected: {}", recordId, recordTableName, rowsAffected);
 
@@ -494,7 +527,7 @@ public class ModelService {
         List<SearchParameter> searchParameters = request.getSearchParameters();
 
         // Validate model exists
-        if (!modelRepository.existsById(sourceModelId)) {
+        if (!modelMetadataCache.modelExists(sourceModelId)) {
             throw new FrontendException("Model not found: " + sourceModelId, true);
         }
 
@@ -507,17 +540,19 @@ public class ModelService {
         String tableName = null;
         String modelLinkTablename = null;
         UUID targetModelId = null;
+        UUID recordsModelId;
+        long schemaVersion;
         if (request.getQueryType() == QueryType.LINKED_RECORDS || request.getQueryType() == QueryType.RECORDS_NOT_LINKED) {
             UUID modelLinkId = request.getModelLinkId();
             UUID sourceRecordId = request.getSourceRecordId();
 
-            modelLink = modelLinkRepository.findById(modelLinkId).orElseThrow(() -> new IllegalArgumentException("Invalid model link id"));
+            modelLink = modelMetadataCache.getModelLink(modelLinkId).orElseThrow(() -> new IllegalArgumentException("Invalid model link id"));
 
             modelLinkTablename = "model_links_" + sanitizeIdentifier(modelLinkId.toString());
 
             if (modelLink.getModel1Id().equals(sourceModelId)) {
                 //Validate target model id
-                modelRepository.findById(modelLink.getModel2Id()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
+                modelMetadataCache.getModel(modelLink.getModel2Id()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
                 targetModelId = modelLink.getModel2Id();
                 linkedSourceRecordNumber = 1;
                 linkedTargetRecordNumber = 2;
@@ -525,7 +560,7 @@ public class ModelService {
                 linkedSourceRecordNumber = 2;
                 linkedTargetRecordNumber = 1;
                 //Validate target model Id
-                modelRepository.findById(modelLink.getModel1Id()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
+                modelMetadataCache.getModel(modelLink.getModel1Id()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
                 targetModelId = modelLink.getModel1Id();
             } else {
                 throw new IllegalArgumentException("Invalid model link id");
@@ -538,322 +573,131 @@ public class ModelService {
             if (!Boolean.TRUE.equals(exists)) {
                 throw new IllegalArgumentException("Invalid source record id");
             }
+            // Read the schema version before the fields, so a concurrent schema change can only make the plan key older
+            recordsModelId = targetModelId;
+            schemaVersion = recordQueryPlanCache.getSchemaVersion(recordsModelId);
             // Get fields for metadata and validation
-            fields = fieldRepository.findByModelId(targetModelId);
+            fields = modelMetadataCache.getFields(targetModelId);
             if (fields.isEmpty()) {
                 throw new IllegalStateException("No fields found for model: " + targetModelId);
             }
             tableName = "records_" + sanitizeIdentifier(targetModelId.toString());
         } else {
+            recordsModelId = sourceModelId;
+            schemaVersion = recordQueryPlanCache.getSchemaVersion(recordsModelId);
             // Get fields for metadata and validation
-            fields = fieldRepository.findByModelId(sourceModelId);
+            fields = modelMetadataCache.getFields(sourceModelId);
             if (fields.isEmpty()) {
                 throw new IllegalStateException("No fields found for model: " + sourceModelId);
             }
             tableName = "records_" + sanitizeIdentifier(sourceModelId.toString());
         }
 
-        String actualRecordCountSql = null;
-        if (request.getQueryType() == QueryType.ALL_RECORDS) {
-            actualRecordCountSql = "SELECT COUNT(*) FROM " + " records_" + sanitizeIdentifier(sourceModelId.toString());
-        }
-
-        if (request.getQueryType() == QueryType.RECORDS_NOT_LINKED || request.getQueryType() == QueryType.LINKED_RECORDS) {
-            actualRecordCountSql = "SELECT COUNT(*) FROM " + " records_" + sanitizeIdentifier(targetModelId.toString());
-        }
-
-        if (actualRecordCountSql == null) {
-            throw new RuntimeException("actualRecordCountSql is null");
-        }
-
-        Long actualRecordCount = jdbcTemplate.queryForObject(actualRecordCountSql, Long.class);
-
         // Validate and normalize sort parameters
         String validatedSortField = validateSortField(sortField, fields);
         String validatedSortOrder = validateSortOrder(sortOrder);
-
-        // Decode cursor
-        CursorInfo cursorInfo = CursorUtils.decodeCursor(cursor);
-        
-        // Build table name
-
-
-        // Build the SELECT query
-        StringBuilder querySql = new StringBuilder();
-        querySql.append("SELECT r.id, r.created_at, r.updated_at");
-
-        if (request.getQueryType() == QueryType.LINKED_RECORDS) {
-            querySql.append(", ml.id as link_id");
+        if ("rank".equals(validatedSortField) && getFullTextParameterIndex(searchParameters) < 0) {
+            throw new FrontendException("Sorting by rank requires a full text search", true);
         }
 
-        // Add field columns to SELECT
-        for (Field field : fields) {
-            String columnName = "field_" + sanitizeIdentifier(field.getId().toString());
-            querySql.append(", r.");
-            appendQuotedIdentifier(querySql, columnName);
-        }
-
-        querySql.append(" FROM ");
-        appendQuotedIdentifier(querySql, tableName);
-        querySql.append(" r ");
-
-        List<Object> parameters = new ArrayList<>();
-
-        //Now join the linked records table
-        if (request.getQueryType() == QueryType.LINKED_RECORDS) {
-            querySql.append(" JOIN " + modelLinkTablename + " ml ");
-            querySql.append(" ON ml.record" + linkedTargetRecordNumber + "_id = r.id AND ml.record" + linkedSourceRecordNumber + "_id = ? ");
-            parameters.add(request.getSourceRecordId());
-            log.debug(querySql.toString());
+        // Decode cursor
+        CursorInfo cursorInfo = cursorCodec.decode(cursor);
+        if (cursorInfo == null && cursor != null && !cursor.isBlank()) {
+            // Serving the first page instead would send a client that follows the cursors round in circles
+            throw new FrontendException("Invalid or expired cursor, please reload the records", true);
         }
-
-        if (request.getQueryType() == QueryType.RECORDS_NOT_LINKED) {
-            querySql.append(" LEFT JOIN " + modelLinkTablename + " ml ON ml.record" + linkedTargetRecordNumber + "_id = r.id AND ml.record" + linkedSourceRecordNumber + "_id = ? ");
-            parameters.add(request.getSourceRecordId());
+        if (cursorInfo != null && !cursorInfo.getSortField().equals(validatedSortField)) {
+            throw new FrontendException("Cursor does not match the sort field", true);
         }
 
-        // Build WHERE clause
-        String sortColumn = CursorUtils.getDatabaseColumnName(validatedSortField, fields);
-
-
-        querySql.append(" WHERE r.").append(sortColumn).append(" IS NOT NULL ");
+        String effectiveSortOrder = validatedSortOrder;
 
-        if (request.getQueryType() == QueryType.RECORDS_NOT_LINKED) {
-            querySql.append(" AND ml.record" + linkedSourceRecordNumber + "_id IS NULL ");
+        // For previous page navigation, we need to reverse the sort order and comparison
+        if (isPreviousPage) {
+            effectiveSortOrder = "DESC".equalsIgnoreCase(validatedSortOrder) ? "ASC" : "DESC";
         }
 
-        // Process search criteria
-        List<String> searchConditions = new ArrayList<>();
-        
-        if (searchParameters != null && !searchParameters.isEmpty()) {
-
-            for (SearchParameter searchParameter : searchParameters) {
-                SearchFieldType searchFieldType;
-                String columnName;
-
-                if (searchParameter.getSearchFieldIdentifier() == null) {
-                    throw new IllegalArgumentException("Invalid search field identifier. Is null.");
-                }
-
-                Field field = null;
-
-                if (searchParameter.getSearchFieldIdentifier() == SearchFieldIdentifier.CUSTOM_FIELD) {
-                    if (searchParameter.getFieldID() == null) {
-                        throw new IllegalArgumentException("Invalid field ID. Is null.");
-                    }
-                    field = fieldRepository.findById(searchParameter.getFieldID())
-                            .orElseThrow(() -> new IllegalArgumentException("Field not found: " + searchParameter.getFieldID()));
-                }
-
-                columnName = switch(searchParameter.getSearchFieldIdentifier()) {
-                    case null -> throw new IllegalArgumentException("Invalid search field identifier. Is null.");
-                    case CREATED_AT -> "r.created_at";
-                    case UPDATED_AT -> "r.updated_at";
-                    case ID -> "r.id";
-                    case CUSTOM_FIELD -> {
-                        yield "r.field_" + sanitizeIdentifier(field.getId().toString());
-                    }
-                };
-                searchFieldType = switch(searchParameter.getSearchFieldIdentifier()) {
-                    case null -> throw new IllegalArgumentException("Invalid search field identifier. Is null.");
-                    case CREATED_AT, UPDATED_AT -> SearchFieldType.DATETIME;
-                    case ID -> SearchFieldType.UUID;
-                    case CUSTOM_FIELD -> SearchFieldType.fromFieldType(field.getType());
-
-                };
-
-                if (columnName == null) {
-                    throw new IllegalArgumentException("Column name is null");
-                }
-
-                if (searchFieldType == null) {
-                    throw new IllegalArgumentException("Search field type is null");
-                }
-
-                //<editor-fold desc="Validate Search">
-                switch (searchFieldType) {
-                    case null -> throw new IllegalArgumentException("Search field type is null");
-                    case DATETIME -> {
-                        switch (searchParameter.getSearchType()) {
-                            case DATE_TIME_AFTER, DATE_TIME_BEFORE, DATE_TIME_BETWEEN -> log.debug("Valid");
-                            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                        }
-                    }
-                    case UUID, TEXT -> {
-                        switch (searchParameter.getSearchType()) {
-                            case TEXT_CONTAINS, TEXT_NOT_CONTAINS, TEXT_NOT_EQUALS, TEXT_ENDS_WITH, TEXT_STARTS_WITH, TEXT_EQUALS -> log.debug("Valid");
-                            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                        }
-                    }
-                    case BOOLEAN -> {
-                        switch (searchParameter.getSearchType()) {
-                            case BOOLEAN_TRUE, BOOLEAN_FALSE ->  log.debug("Valid");
-                            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                        }
-                    }
-                    case DECIMAL -> {
-                        switch (searchParameter.getSearchType()) {
-                            case DECIMAL_EQUALS, DECIMAL_GREATER_THAN, DECIMAL_LESS_THAN -> log.debug("Valid");
-                            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                        }
-                    }
-                    case LONG ->  {
-                        switch (searchParameter.getSearchType()) {
-                            case LONG_EQUALS, LONG_GREATER_THAN, LONG_LESS_THAN -> log.debug("Valid");
-                            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                        }
-                    }
-                    case DATE -> {
-                        switch (searchParameter.getSearchType()) {
-                            case DATE_AFTER, DATE_BEFORE, DATE_BETWEEN, DATE_ON -> log.debug("Valid");
-                            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                        }
-                    }
-                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                }
-                //</editor-fold>
-
-                String condition = switch (searchFieldType) {
-                    case null -> throw new IllegalArgumentException("Invalid search field identifier. Is null.");
-                    case TEXT -> buildTextSearchCondition(columnName, searchParameter, parameters);
-                    case DATE -> buildDateSearchCondition(columnName, searchParameter, parameters);
-                    case DATETIME -> buildDateTimeSearchCondition(columnName, searchParameter, parameters);
-                    case BOOLEAN -> buildBooleanSearchCondition(columnName, searchParameter, parameters);
-                    case DECIMAL -> buildDecimalSearchCondition(columnName, searchParameter, parameters);
-                    case LONG -> buildLongSearchCondition(columnName, searchParameter, parameters);
-                    case UUID ->  buildUuidSearchCondition(columnName, searchParameter, parameters);
-                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
-                };
-
-                if (condition != null) {
-                    searchConditions.add(condition);
-                }
+        // Where the page starts, and where it continues when it runs out of rows before the limit
+        boolean nullsLast = CursorUtils.isNullsLast(effectiveSortOrder);
+        boolean sortValueNullable = !"id".equals(validatedSortField) && !"rank".equals(validatedSortField);
+        RecordQueryPlan.KeysetBound keysetBound;
+        RecordQueryPlan.KeysetBound continuationBound = null;
+        if (cursorInfo == null) {
+            keysetBound = RecordQueryPlan.KeysetBound.NONE;
+        } else if (cursorInfo.getSortFieldValue() == null) {
+            keysetBound = RecordQueryPlan.KeysetBound.AFTER_NULL;
+            if (!nullsLast) {
+                continuationBound = RecordQueryPlan.KeysetBound.NON_NULL_VALUES;
+            }
+        } else {
+            keysetBound = RecordQueryPlan.KeysetBound.AFTER_VALUE;
+            if (nullsLast && sortValueNullable) {
+                continuationBound = RecordQueryPlan.KeysetBound.NULL_VALUES;
             }
         }
-
-        if (!searchConditions.isEmpty()) {
-            querySql.append(" AND ");
-            querySql.append(String.join(" AND ", searchConditions));
+        if (cursorInfo != null && cursorInfo.getNullsLast() != null
+                && cursorInfo.getNullsLast() != CursorUtils.isNullsLast(validatedSortOrder)) {
+            throw new FrontendException("Cursor does not match the sort order", true);
         }
 
-        // Optional: Get rough count estimate (can be expensive on large tables)
-        Long totalRecords;
-        try {
-            String countSql = convertToCountQuery(querySql.toString());
-            totalRecords = jdbcTemplate.queryForObject(countSql, parameters.toArray(), Long.class);
-        } catch (Exception e) {
-            log.warn("Could not get count estimate for table {}: {}", tableName, e.getMessage());
-            totalRecords = -1L; // Indicate count unavailable
-        }
+        // Get the compiled query for this query shape, compile it on a miss
+        RecordQueryPlanCache.Key planKey = new RecordQueryPlanCache.Key(recordsModelId, schemaVersion, sourceModelId,
+                request.getModelLinkId(), request.getQueryType(), validatedSortField, effectiveSortOrder,
+                keysetBound, getSearchShapes(searchParameters));
+        RecordQueryPlan plan = getRecordQueryPlan(planKey, fields, tableName, modelLinkTablename,
+                linkedSourceRecordNumber, linkedTargetRecordNumber, searchParameters);
 
-        String effectiveSortOrder = validatedSortOrder;
-        
-        // For previous page navigation, we need to reverse the sort order and comparison
-        if (isPreviousPage) {
-            effectiveSortOrder = "DESC".equalsIgnoreCase(validatedSortOrder) ? "ASC" : "DESC";
-        }
-        
-        if (cursorInfo != null) {
+        CountMode countMode = request.getCountMode() != null ? request.getCountMode() : CountMode.EXACT;
+        RecordCountService.CountResult actualRecordCount = recordCountService.countAll(recordsModelId, plan, countMode);
 
-            Object sortValue = CursorUtils.convertCursorValueForComparison(
-                cursorInfo.getSortFieldValue(), validatedSortField, fields);
-            UUID cursorRecordId = cursorInfo.getRecordId();
+        List<Object> filterParameters = plan.bindFilterParameters(request.getSourceRecordId(), searchParameters);
 
-            querySql.append(" AND ");
+        long queryStart = System.nanoTime();
 
-            if ("DESC".equalsIgnoreCase(effectiveSortOrder)) {
-                // For DESC: (sort_field < cursor_value) OR (sort_field = cursor_value AND id < cursor_id)
-                querySql.append("(r.").append(sortColumn).append(" < ?");
-                querySql.append(" OR (r.").append(sortColumn).append(" = ? AND r.id < ?))");
-                parameters.add(sortValue);
-                parameters.add(sortValue);
-                parameters.add(cursorRecordId);
-            } else {
-                // For ASC: (sort_field > cursor_value) OR (sort_field = cursor_value AND id > cursor_id)
-                querySql.append("(r.").append(sortColumn).append(" > ?");
-                querySql.append(" OR (r.").append(sortColumn).append(" = ? AND r.id > ?))");
-                parameters.add(sortValue);
-                parameters.add(sortValue);
-                parameters.add(cursorRecordId);
-            }
+        // Count of the matching records, -1 when not requested or unavailable
+        RecordCountService.CountResult totalRecords = recordCountService.countMatching(plan, filterParameters, countMode);
 
+        List<Object> parameters = new ArrayList<>(filterParameters);
+        if (keysetBound == RecordQueryPlan.KeysetBound.AFTER_VALUE) {
+            parameters.add(CursorUtils.convertCursorValueForComparison(
+                cursorInfo.getSortFieldValue(), validatedSortField, fields));
+            parameters.add(cursorInfo.getRecordId());
+        } else if (keysetBound == RecordQueryPlan.KeysetBound.AFTER_NULL) {
+            parameters.add(cursorInfo.getRecordId());
         }
 
-        // Add ORDER BY clause with tie-breaker
-        querySql.append(" ORDER BY r.").append(sortColumn).append(" ").append(effectiveSortOrder);
-        querySql.append(", r.id ").append(effectiveSortOrder); // Always add ID as tie-breaker
-
-        // Add LIMIT (get one extra record to check if there are more pages)
-        querySql.append(" LIMIT ?");
+        // Get one extra record to check if there are more pages
         parameters.add(limit + 1);
 
-        log.debug("Executing pagination query: {}", querySql.toString());
+        log.debug("Executing pagination query: {}", plan.getQuerySql());
         log.debug("Parameters: {}", parameters);
 
         // Execute query
-        List<Map<String, Object>> rows;
+        List<RecordDto> recordDtos;
         try {
-            rows = jdbcTemplate.queryForList(querySql.toString(), parameters.toArray());
+            recordDtos = jdbcTemplate.query(plan.getQuerySql(), plan.getRowMapper(), parameters.toArray());
         } catch (Exception e) {
             log.error("Error executing pagination query for model {}: {}", sourceModelId, e.getMessage());
             throw new RuntimeException("Failed to retrieve records: " + e.getMessage());
         }
+        if (continuationBound != null && recordDtos.size() <= limit) {
+            // The page crossed from the sort values into the nulls or back; fill it up from the other side
+            RecordQueryPlan continuationPlan = getRecordQueryPlan(planKey.withKeysetBound(continuationBound), fields,
+                    tableName, modelLinkTablename, linkedSourceRecordNumber, linkedTargetRecordNumber, searchParameters);
+            List<Object> continuationParameters = new ArrayList<>(filterParameters);
+            continuationParameters.add(limit + 1 - recordDtos.size());
+            recordDtos = new ArrayList<>(recordDtos);
+            recordDtos.addAll(jdbcTemplate.query(continuationPlan.getQuerySql(), continuationPlan.getRowMapper(),
+                    continuationParameters.toArray()));
+        }
+        indexAdvisorService.recordQuery(recordsModelId, validatedSortField, searchParameters, System.nanoTime() - queryStart);
 
         // Check if there are more records (hasNext)
-        boolean hasNext = rows.size() > limit;
+        boolean hasNext = recordDtos.size() > limit;
         if (hasNext) {
-            rows = rows.subList(0, limit); // Remove the extra record
+            recordDtos.remove(limit); // Remove the extra record
         }
 
-        // Convert database rows to DTOs
-        List<RecordDto> recordDtos = new ArrayList<>();
-        for (Map<String, Object> row : rows) {
-            RecordDto recordDto = new RecordDto();
-            recordDto.setId((UUID) row.get("id"));
-
-            // Handle timestamp conversion safely
-            Object createdAtObj = row.get("created_at");
-            if (createdAtObj instanceof java.sql.Timestamp) {
-                recordDto.setCreatedAt(((java.sql.Timestamp) createdAtObj).toInstant());
-            }
-
-            Object updatedAtObj = row.get("updated_at");
-            if (updatedAtObj instanceof java.sql.Timestamp) {
-                recordDto.setUpdatedAt(((java.sql.Timestamp) updatedAtObj).toInstant());
-            }
-
-            UUID linkId = (UUID) row.get("link_id");
-            recordDto.setLinkId(linkId);
-
-            // Extract field values
-            Map<UUID, Object> fieldValues = new HashMap<>();
-            for (Field field : fields) {
-                String columnName = "field_" + sanitizeIdentifier(field.getId().toString());
-                Object value = row.get(columnName);
-                if (value != null) {
-                    Object convertedValue = convertFromDatabase(value, field.getType());
-
-                    // Truncate multi-line text fields to 30 characters for search results
-                    if (field.getType() == FieldType.MULTI_LINE_TEXT && convertedValue instanceof String) {
-                        String textValue = (String) convertedValue;
-                        // Replace all whitespace (including newlines, tabs, multiple spaces) with single space
-                        textValue = textValue.replaceAll("\\s+", " ").trim();
-                        if (textValue.length() > 30) {
-                            convertedValue = textValue.substring(0, 30) + "...";
-                        } else {
-                            convertedValue = textValue;
-                        }
-                    }
-
-                    fieldValues.put(field.getId(), convertedValue);
-                } else {
-                    fieldValues.put(field.getId(), null);
-                }
-            }
-            recordDto.setFieldValues(fieldValues);
-            recordDtos.add(recordDto);
-        }
-        
         // If this was a previous page request, we need to reverse the results
         // because we fetched them in reverse order
         if (isPreviousPage) {
@@ -869,6 +713,7 @@ public class ModelService {
             fieldDto.setDescription(field.getDescription());
             fieldDto.setType(field.getType());
             fieldDto.setIsRequired(field.getIsRequired());
+            fieldDto.setIsIndexed(field.getIsIndexed());
             fieldDtos.add(fieldDto);
         }
 
@@ -877,7 +722,8 @@ public class ModelService {
         paginationInfo.setLimit(limit);
         paginationInfo.setSortField(sortField); // Return original field name/ID for frontend
         paginationInfo.setSortOrder(validatedSortOrder);
-        paginationInfo.setActualRecordCount(actualRecordCount);
+        paginationInfo.setActualRecordCount(actualRecordCount.count());
+        paginationInfo.setActualRecordCountMode(actualRecordCount.mode());
         
         if (isPreviousPage) {
             // For previous page, hasNext means there are more records in the forward direction
@@ -897,31 +743,32 @@ public class ModelService {
                 if (hasNext) {
                     RecordDto lastRecord = recordDtos.get(recordDtos.size() - 1);
                     CursorInfo nextCursorInfo = CursorUtils.createCursorFromRecord(lastRecord, validatedSortField, validatedSortOrder, fields);
-                    String nextCursor = CursorUtils.encodeCursor(nextCursorInfo);
+                    String nextCursor = cursorCodec.encode(nextCursorInfo);
                     paginationInfo.setNextCursor(nextCursor);
                 }
                 
                 RecordDto firstRecord = recordDtos.get(0);
                 CursorInfo prevCursorInfo = CursorUtils.createCursorFromRecord(firstRecord, validatedSortField, validatedSortOrder, fields);
-                String prevCursor = CursorUtils.encodeCursor(prevCursorInfo);
+                String prevCursor = cursorCodec.encode(prevCursorInfo);
                 paginationInfo.setPreviousCursor(prevCursor);
             } else {
                 // Previous page navigation - next cursor from last record, prev cursor from first record
                 RecordDto lastRecord = recordDtos.get(recordDtos.size() - 1);
                 CursorInfo nextCursorInfo = CursorUtils.createCursorFromRecord(lastRecord, validatedSortField, validatedSortOrder, fields);
-                String nextCursor = CursorUtils.encodeCursor(nextCursorInfo);
+                String nextCursor = cursorCodec.encode(nextCursorInfo);
                 paginationInfo.setNextCursor(nextCursor);
                 
                 if (hasNext) {
                     RecordDto firstRecord = recordDtos.get(0);
                     CursorInfo prevCursorInfo = CursorUtils.createCursorFromRecord(firstRecord, validatedSortField, validatedSortOrder, fields);
-                    String prevCursor = CursorUtils.encodeCursor(prevCursorInfo);
+                    String prevCursor = cursorCodec.encode(prevCursorInfo);
                     paginationInfo.setPreviousCursor(prevCursor);
                 }
             }
         }
 
-        paginationInfo.setTotalEstimate(totalRecords != null ? totalRecords : 0L);
+        paginationInfo.setTotalEstimate(totalRecords.count());
+        paginationInfo.setTotalEstimateMode(totalRecords.mode());
 
         // Build and return response
         GetRecordsResponse response = new GetRecordsResponse();
@@ -947,11 +794,11 @@ public class ModelService {
         }
 
         //Check if model exists
-        modelRepository.findById(modelId).orElseThrow(() -> new RuntimeException("Model not found for model ID: " + modelId));
+        modelMetadataCache.getModel(modelId).orElseThrow(() -> new RuntimeException("Model not found for model ID: " + modelId));
 
         String recordTableName = "records_" + sanitizeIdentifier(modelId.toString());
         // Get fields for metadata
-        List<Field> fields = fieldRepository.findByModelId(modelId);
+        List<Field> fields = modelMetadataCache.getFields(modelId);
         if (fields.isEmpty()) {
             throw new IllegalStateException("No fields found for model: " + modelId);
         }
@@ -974,41 +821,14 @@ public class ModelService {
         log.debug("Executing single record query: {}", querySql.toString());
 
         // Execute query
-        Map<String, Object> row;
+        RecordDto recordDto;
         try {
-            row = jdbcTemplate.queryForMap(querySql.toString(), recordId);
+            recordDto = jdbcTemplate.queryForObject(querySql.toString(), RecordRowMapper.forRecord(fields), recordId);
         } catch (Exception e) {
             log.error("Error executing single record query for record {}: {}", recordId, e.getMessage());
             throw new RuntimeException("Failed to retrieve record: " + e.getMessage());
         }
 
-        // Convert database row to DTO
-        RecordDto recordDto = new RecordDto();
-        recordDto.setId((UUID) row.get("id"));
-
-        // Handle timestamp conversion safely
-        Object createdAtObj = row.get("created_at");
-        if (createdAtObj instanceof java.sql.Timestamp) {
-            recordDto.setCreatedAt(((java.sql.Timestamp) createdAtObj).toInstant());
-        }
-
-        Object updatedAtObj = row.get("updated_at");
-        if (updatedAtObj instanceof java.sql.Timestamp) {
-            recordDto.setUpdatedAt(((java.sql.Timestamp) updatedAtObj).toInstant());
-        }
-
-        // Extract field values
-        Map<UUID, Object> fieldValues = new HashMap<>();
-        for (Field field : fields) {
-            String columnName = "field_" + sanitizeIdentifier(field.getId().toString());
-            Object value = row.get(columnName);
-            if (value != null) {
-                Object convertedValue = convertFromDatabase(value, field.getType());
-                fieldValues.put(field.getId(), convertedValue);
-            }
-        }
-        recordDto.setFieldValues(fieldValues);
-
         //Find linked records
 
         recordDto.setLinkedRecordCounts(getLinkedRecordCounts(modelId, recordId));
@@ -1031,7 +851,7 @@ public class ModelService {
         }
 
         //Check if model exists
-        modelRepository.findById(modelId).orElseThrow(() -> new RuntimeException("Model not found for model ID: " + modelId));
+        modelMetadataCache.getModel(modelId).orElseThrow(() -> new RuntimeException("Model not found for model ID: " + modelId));
 
         String recordTableName = "records_" + sanitizeIdentifier(modelId.toString());
         //Check if record exists
@@ -1065,13 +885,57 @@ public class ModelService {
             }
         }
 
+        // Delete the links explicitly instead of relying on the cascade, so the link counters can be updated
+        for (ModelLink modelLink : modelMetadataCache.getModelLinks(modelId)) {
+            List<String> linkConditions = new ArrayList<>();
+            if (modelLink.getModel1Id().equals(modelId)) {
+                linkConditions.add("record1_id = ?");
+            }
+            if (modelLink.getModel2Id().equals(modelId)) {
+                linkConditions.add("record2_id = ?");
+            }
+            String sqlDeleteLinks = "DELETE FROM model_links_" + sanitizeIdentifier(modelLink.getId().toString()) +
+                    " WHERE " + String.join(" OR ", linkConditions);
+            int deletedLinks = jdbcTemplate.update(sqlDeleteLinks, linkConditions.size() == 2 ? new Object[]{recordId, recordId} : new Object[]{recordId});
+            modelStatsService.add(modelLink.getId(), -deletedLinks);
+        }
+
         String sqlDelete = "DELETE FROM " + recordTableName + " WHERE id = ?";
-        jdbcTemplate.update(sqlDelete, recordId);
+        int deleted = jdbcTemplate.update(sqlDelete, recordId);
+        modelStatsService.add(modelId, -deleted);
+        searchIndexService.removeRecord(modelId, recordId);
     }
 
-    public String convertToCountQuery(String originalSql) {
-        // Convert SELECT clause to COUNT(*)
-        return originalSql.replaceAll("(?i)SELECT\\s+.*?\\s+FROM", "SELECT COUNT(*) FROM");
+    /**
+     * Validates an export of a model's records and compiles its query. The rows are streamed afterwards by
+     * {@link RecordExportService}, outside of this call.
+     */
+    @Transactional(readOnly = true)
+    public RecordExport prepareRecordExport(UUID userId, UUID modelId, ExportRecordsRequest request) {
+        if (!userHasGivenPermissionOnModel(userId, modelId, ModelPermission.VIEW_RECORDS)) {
+            log.error("User with ID [" + userId + "] does not have VIEW permissions on model with ID [" + modelId + "]");
+            throw new FrontendException("VIEW permission required", ErrorCode.PERMISSION_DENIED, true);
+        }
+        if (!modelMetadataCache.modelExists(modelId)) {
+            throw new FrontendException("Model not found: " + modelId, true);
+        }
+
+        List<SearchParameter> searchParameters = request.getSearchParameters() != null ? request.getSearchParameters() : List.of();
+        long schemaVersion = recordQueryPlanCache.getSchemaVersion(modelId);
+        List<Field> fields = modelMetadataCache.getFields(modelId);
+        if (fields.isEmpty()) {
+            throw new IllegalStateException("No fields found for model: " + modelId);
+        }
+        String tableName = "records_" + sanitizeIdentifier(modelId.toString());
+
+        // Export in primary key order, so the rows come from the index without a sort. Same plan as a first page sorted by id
+        RecordQueryPlanCache.Key planKey = new RecordQueryPlanCache.Key(modelId, schemaVersion, modelId, null,
+                QueryType.ALL_RECORDS, "id", "ASC", RecordQueryPlan.KeysetBound.NONE, getSearchShapes(searchParameters));
+        RecordQueryPlan plan = getRecordQueryPlan(planKey, fields, tableName, null, 0, 0, searchParameters);
+
+        List<Object> parameters = plan.bindFilterParameters(null, searchParameters);
+        parameters.add(Long.MAX_VALUE); // No limit
+        return new RecordExport(plan, parameters, request.getFormat(), request.isGzip());
     }
 
     private String validateSortField(String sortField, List<Field> fields) {
@@ -1085,6 +949,11 @@ public class ModelService {
             return sortField;
         }
 
+        // Full text search rank
+        if ("rank".equals(sortField)) {
+            return sortField;
+        }
+
         // Check if it's a valid field UUID for custom fields
         try {
             UUID fieldId = UUID.fromString(sortField);
@@ -1108,126 +977,445 @@ public class ModelService {
         return "ASC";
     }
 
-    private String buildTextSearchCondition(String columnName, SearchParameter searchParameter, List<Object> parameters) {
+    /**
+     * Returns the cached plan for the key, compiling it on a miss.
+     */
+    private RecordQueryPlan getRecordQueryPlan(RecordQueryPlanCache.Key planKey, List<Field> fields, String tableName,
+                                               String modelLinkTablename, int linkedSourceRecordNumber,
+                                               int linkedTargetRecordNumber, List<SearchParameter> searchParameters) {
+        RecordQueryPlan plan = recordQueryPlanCache.get(planKey);
+        if (plan == null) {
+            plan = compileRecordQueryPlan(planKey.modelId(), planKey.queryType(), fields, tableName, modelLinkTablename,
+                    linkedSourceRecordNumber, linkedTargetRecordNumber, planKey.sortField(), planKey.sortOrder(),
+                    planKey.keysetBound(), searchParameters);
+            recordQueryPlanCache.put(planKey, plan);
+        }
+        return plan;
+    }
+
+    private RecordQueryPlan compileRecordQueryPlan(UUID modelId, QueryType queryType, List<Field> fields, String tableName,
+                                                   String modelLinkTablename, int linkedSourceRecordNumber,
+                                                   int linkedTargetRecordNumber, String validatedSortField,
+                                                   String effectiveSortOrder, RecordQueryPlan.KeysetBound keysetBound,
+                                                   List<SearchParameter> searchParameters) {
+        // Build the SELECT list
+        StringBuilder selectSql = new StringBuilder();
+        selectSql.append("SELECT r.id, r.created_at, r.updated_at");
+
+        if (queryType == QueryType.LINKED_RECORDS) {
+            selectSql.append(", ml.id as link_id");
+        }
+
+        // Add field columns to SELECT, in field order (read by position by the row mapper)
+        for (Field field : fields) {
+            String columnName = "field_" + sanitizeIdentifier(field.getId().toString());
+            selectSql.append(", r.");
+            appendQuotedIdentifier(selectSql, columnName);
+        }
+
+        // Full text searches are ranked by their first full text parameter
+        int fullTextParameterIndex = getFullTextParameterIndex(searchParameters);
+        if (fullTextParameterIndex >= 0) {
+            selectSql.append(", ts_rank(si.document, fts_query) AS search_rank");
+        }
+
+        StringBuilder fromSql = new StringBuilder();
+        fromSql.append(" FROM ");
+        appendQuotedIdentifier(fromSql, tableName);
+        fromSql.append(" r ");
+
+        //Now join the linked records table
+        if (queryType == QueryType.LINKED_RECORDS) {
+            fromSql.append(" JOIN " + modelLinkTablename + " ml ");
+            fromSql.append(" ON ml.record" + linkedTargetRecordNumber + "_id = r.id AND ml.record" + linkedSourceRecordNumber + "_id = ? ");
+        }
+
+        if (queryType == QueryType.RECORDS_NOT_LINKED) {
+            fromSql.append(" LEFT JOIN " + modelLinkTablename + " ml ON ml.record" + linkedTargetRecordNumber + "_id = r.id AND ml.record" + linkedSourceRecordNumber + "_id = ? ");
+        }
+
+        // Process search criteria
+        List<String> searchConditions = new ArrayList<>();
+        List<RecordQueryPlan.IndexedBinder> binders = new ArrayList<>();
+
+        if (fullTextParameterIndex >= 0) {
+            // The documents are kept in the global search index, not in the records table
+            fromSql.append(" JOIN search_index si ON si.model_id = '").append(modelId).append("' AND si.record_id = r.id");
+            fromSql.append(" CROSS JOIN websearch_to_tsquery('").append(getFullTextConfig()).append("', ?) fts_query ");
+            binders.add(new RecordQueryPlan.IndexedBinder(fullTextParameterIndex,
+                    (p, parameters) -> parameters.add(requireSearchValue(p.getTextSearchValue()))));
+        }
+
+        // Build WHERE clause
+        String sortColumn;
+        String sortExpression;
+        if ("rank".equals(validatedSortField)) {
+            sortColumn = "search_rank";
+            sortExpression = "ts_rank(si.document, fts_query)";
+        } else {
+            sortColumn = CursorUtils.getDatabaseColumnName(validatedSortField, fields);
+            sortExpression = "r." + sortColumn;
+        }
+
+        if (queryType == QueryType.RECORDS_NOT_LINKED) {
+            searchConditions.add("ml.record" + linkedSourceRecordNumber + "_id IS NULL");
+        }
+
+        if (searchParameters != null) {
+            for (int i = 0; i < searchParameters.size(); i++) {
+                SearchParameter searchParameter = searchParameters.get(i);
+                String condition = compileSearchCondition(searchParameter, fields, i, binders);
+                if (condition != null) {
+                    searchConditions.add(condition);
+                }
+            }
+        }
+
+        if (!searchConditions.isEmpty()) {
+            fromSql.append(" WHERE ");
+            fromSql.append(String.join(" AND ", searchConditions));
+        }
+
+        String countSql = "SELECT COUNT(*)" + fromSql;
+        String estimateSql = "EXPLAIN (FORMAT JSON) SELECT 1" + fromSql;
+
+        StringBuilder querySql = new StringBuilder(selectSql.length() + fromSql.length() + 128);
+        querySql.append(selectSql).append(fromSql);
+
+        // Keyset predicate. Row value comparisons are a single range scan on a (sort column, id) index
+        String comparison = "DESC".equalsIgnoreCase(effectiveSortOrder) ? " < " : " > ";
+        String keysetCondition = switch (keysetBound) {
+            case NONE -> null;
+            case AFTER_VALUE -> "(" + sortExpression + ", r.id)" + comparison + "(?, ?)";
+            case AFTER_NULL -> sortExpression + " IS NULL AND r.id" + comparison + "?";
+            case NULL_VALUES -> sortExpression + " IS NULL";
+            case NON_NULL_VALUES -> sortExpression + " IS NOT NULL";
+        };
+        if (keysetCondition != null) {
+            querySql.append(searchConditions.isEmpty() ? " WHERE " : " AND ").append(keysetCondition);
+        }
+
+        // Add ORDER BY clause with tie-breaker
+        querySql.append(" ORDER BY ").append(sortExpression).append(" ").append(effectiveSortOrder)
+                .append(CursorUtils.isNullsLast(effectiveSortOrder) ? " NULLS LAST" : " NULLS FIRST");
+        querySql.append(", r.id ").append(effectiveSortOrder); // Always add ID as tie-breaker
+
+        // Add LIMIT (the caller asks for one extra record to check if there are more pages)
+        querySql.append(" LIMIT ?");
+
+        StringBuilder actualRecordCountSql = new StringBuilder("SELECT COUNT(*) FROM ");
+        appendQuotedIdentifier(actualRecordCountSql, tableName);
+
+        log.debug("Compiled record query plan: {}", querySql);
+
+        return new RecordQueryPlan(querySql.toString(), countSql, actualRecordCountSql.toString(), estimateSql,
+                tableName, sortColumn, fields, queryType == QueryType.LINKED_RECORDS, fullTextParameterIndex >= 0,
+                queryType != QueryType.ALL_RECORDS, binders);
+    }
+
+    private String compileSearchCondition(SearchParameter searchParameter, List<Field> fields, int searchParameterIndex,
+                                          List<RecordQueryPlan.IndexedBinder> binders) {
+        SearchFieldType searchFieldType;
+        String columnName;
+
+        if (searchParameter.getSearchType() == SearchType.FULL_TEXT) {
+            binders.add(new RecordQueryPlan.IndexedBinder(searchParameterIndex,
+                    (p, parameters) -> parameters.add(requireSearchValue(p.getTextSearchValue()))));
+            return "si.document @@ websearch_to_tsquery('" + getFullTextConfig() + "', ?)";
+        }
+
+        if (searchParameter.getSearchFieldIdentifier() == null) {
+            throw new IllegalArgumentException("Invalid search field identifier. Is null.");
+        }
+
+        Field field = null;
+
+        if (searchParameter.getSearchFieldIdentifier() == SearchFieldIdentifier.CUSTOM_FIELD) {
+            if (searchParameter.getFieldID() == null) {
+                throw new IllegalArgumentException("Invalid field ID. Is null.");
+            }
+            field = fields.stream()
+                    .filter(f -> f.getId().equals(searchParameter.getFieldID()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Field not found: " + searchParameter.getFieldID()));
+        }
+
+        final Field searchField = field;
+        columnName = switch(searchParameter.getSearchFieldIdentifier()) {
+            case null -> throw new IllegalArgumentException("Invalid search field identifier. Is null.");
+            case CREATED_AT -> "r.created_at";
+            case UPDATED_AT -> "r.updated_at";
+            case ID -> "r.id";
+            case CUSTOM_FIELD -> {
+                yield "r.field_" + sanitizeIdentifier(searchField.getId().toString());
+            }
+        };
+        searchFieldType = switch(searchParameter.getSearchFieldIdentifier()) {
+            case null -> throw new IllegalArgumentException("Invalid search field identifier. Is null.");
+            case CREATED_AT, UPDATED_AT -> SearchFieldType.DATETIME;
+            case ID -> SearchFieldType.UUID;
+            case CUSTOM_FIELD -> SearchFieldType.fromFieldType(searchField.getType());
+
+        };
+
+        if (columnName == null) {
+            throw new IllegalArgumentException("Column name is null");
+        }
+
+        if (searchFieldType == null) {
+            throw new IllegalArgumentException("Search field type is null");
+        }
+
+        //<editor-fold desc="Validate Search">
+        switch (searchFieldType) {
+            case null -> throw new IllegalArgumentException("Search field type is null");
+            case DATETIME -> {
+                switch (searchParameter.getSearchType()) {
+                    case DATE_TIME_AFTER, DATE_TIME_BEFORE, DATE_TIME_BETWEEN -> log.debug("Valid");
+                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+                }
+            }
+            case UUID, TEXT -> {
+                switch (searchParameter.getSearchType()) {
+                    case TEXT_CONTAINS, TEXT_NOT_CONTAINS, TEXT_NOT_EQUALS, TEXT_ENDS_WITH, TEXT_STARTS_WITH, TEXT_EQUALS -> log.debug("Valid");
+                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+                }
+            }
+            case BOOLEAN -> {
+                switch (searchParameter.getSearchType()) {
+                    case BOOLEAN_TRUE, BOOLEAN_FALSE ->  log.debug("Valid");
+                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+                }
+            }
+            case DECIMAL -> {
+                switch (searchParameter.getSearchType()) {
+                    case DECIMAL_EQUALS, DECIMAL_GREATER_THAN, DECIMAL_LESS_THAN -> log.debug("Valid");
+                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+                }
+            }
+            case LONG ->  {
+                switch (searchParameter.getSearchType()) {
+                    case LONG_EQUALS, LONG_GREATER_THAN, LONG_LESS_THAN -> log.debug("Valid");
+                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+                }
+            }
+            case DATE -> {
+                switch (searchParameter.getSearchType()) {
+                    case DATE_AFTER, DATE_BEFORE, DATE_BETWEEN, DATE_ON -> log.debug("Valid");
+                    default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+                }
+            }
+            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+        }
+        //</editor-fold>
+
+        List<RecordQueryPlan.ParameterBinder> conditionBinders = new ArrayList<>();
+        String condition = switch (searchFieldType) {
+            case null -> throw new IllegalArgumentException("Invalid search field identifier. Is null.");
+            case TEXT -> buildTextSearchCondition(columnName, searchParameter, conditionBinders);
+            case DATE -> buildDateSearchCondition(columnName, searchParameter, conditionBinders);
+            case DATETIME -> buildDateTimeSearchCondition(columnName, searchParameter, conditionBinders);
+            case BOOLEAN -> buildBooleanSearchCondition(columnName, searchParameter, conditionBinders);
+            case DECIMAL -> buildDecimalSearchCondition(columnName, searchParameter, conditionBinders);
+            case LONG -> buildLongSearchCondition(columnName, searchParameter, conditionBinders);
+            case UUID ->  buildUuidSearchCondition(columnName, searchParameter, conditionBinders);
+            default -> throw new IllegalArgumentException("Invalid search parameter: " + searchParameter.getSearchType());
+        };
+
+        if (condition != null) {
+            for (RecordQueryPlan.ParameterBinder binder : conditionBinders) {
+                binders.add(new RecordQueryPlan.IndexedBinder(searchParameterIndex, binder));
+            }
+        }
+        return condition;
+    }
+
+    private List<RecordQueryPlanCache.SearchShape> getSearchShapes(List<SearchParameter> searchParameters) {
+        if (searchParameters == null || searchParameters.isEmpty()) {
+            return List.of();
+        }
+        List<RecordQueryPlanCache.SearchShape> searchShapes = new ArrayList<>(searchParameters.size());
+        for (SearchParameter searchParameter : searchParameters) {
+            searchShapes.add(new RecordQueryPlanCache.SearchShape(searchParameter.getSearchFieldIdentifier(),
+                    searchParameter.getFieldID(), searchParameter.getSearchType(), getSearchShapeVariant(searchParameter)));
+        }
+        return searchShapes;
+    }
+
+    private int getFullTextParameterIndex(List<SearchParameter> searchParameters) {
+        if (searchParameters != null) {
+            for (int i = 0; i < searchParameters.size(); i++) {
+                if (searchParameters.get(i).getSearchType() == SearchType.FULL_TEXT) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private String getFullTextConfig() {
+        // Inlined into SQL, so only a plain configuration name is accepted
+        return sanitizeIdentifier(fullTextConfig);
+    }
+
+    private boolean isTextField(FieldType fieldType) {
+        return fieldType == FieldType.SINGLE_LINE_TEXT || fieldType == FieldType.MULTI_LINE_TEXT || fieldType == FieldType.EMAIL;
+    }
+
+    /**
+     * Schedules the (created_at, id) and (updated_at, id) indexes of records tables created before they existed.
+     */
+    public void ensureSortIndexes() {
+        for (Model model : modelRepository.findAll()) {
+            fieldIndexService.scheduleSortIndexes(model.getId());
+        }
+    }
+
+    /**
+     * Captures the few values that change the generated SQL: UUID equality falls back to a text
+     * comparison for non-UUID input, and a date search without its dates is skipped.
+     */
+    private int getSearchShapeVariant(SearchParameter searchParameter) {
+        int variant = 0;
+        if (searchParameter.getSearchFieldIdentifier() == SearchFieldIdentifier.ID && isUuid(searchParameter.getTextSearchValue())) {
+            variant |= 1;
+        }
+        if (searchParameter.getDateOn() != null) {
+            variant |= 2;
+        }
+        if (searchParameter.getDateBefore() != null) {
+            variant |= 4;
+        }
+        if (searchParameter.getDateAfter() != null) {
+            variant |= 8;
+        }
+        return variant;
+    }
+
+    private boolean isUuid(String value) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            UUID.fromString(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String buildTextSearchCondition(String columnName, SearchParameter searchParameter, List<RecordQueryPlan.ParameterBinder> binders) {
 
-        String value = searchParameter.getTextSearchValue();
-        
         switch (searchParameter.getSearchType()) {
             case TEXT_CONTAINS:
-                parameters.add("%" + value + "%");
+                binders.add((p, parameters) -> parameters.add("%" + p.getTextSearchValue() + "%"));
                 return columnName + " ILIKE ?";
             case TEXT_EQUALS:
-                parameters.add(value);
+                binders.add((p, parameters) -> parameters.add(p.getTextSearchValue()));
                 return columnName + " = ?";
             case TEXT_STARTS_WITH:
-                parameters.add(value + "%");
+                binders.add((p, parameters) -> parameters.add(p.getTextSearchValue() + "%"));
                 return columnName + " ILIKE ?";
             case TEXT_ENDS_WITH:
-                parameters.add("%" + value);
+                binders.add((p, parameters) -> parameters.add("%" + p.getTextSearchValue()));
                 return columnName + " ILIKE ?";
             case TEXT_NOT_CONTAINS:
-                parameters.add("%" + value + "%");
+                binders.add((p, parameters) -> parameters.add("%" + p.getTextSearchValue() + "%"));
                 return columnName + " NOT ILIKE ?";
             case TEXT_NOT_EQUALS:
-                parameters.add(value);
+                binders.add((p, parameters) -> parameters.add(p.getTextSearchValue()));
                 return columnName + " != ?";
             default:
                 return null;
         }
     }
 
-    private String buildUuidSearchCondition(String columnName, SearchParameter searchParameter, List<Object> parameters) {
-
-        String searchValue = searchParameter.getTextSearchValue();
+    private String buildUuidSearchCondition(String columnName, SearchParameter searchParameter, List<RecordQueryPlan.ParameterBinder> binders) {
 
         switch (searchParameter.getSearchType()) {
             case TEXT_CONTAINS:
-                parameters.add("%" + searchParameter.getTextSearchValue() + "%");
+                binders.add((p, parameters) -> parameters.add("%" + p.getTextSearchValue() + "%"));
                 return "CAST(" + columnName + " AS TEXT) ILIKE ?";
             case TEXT_EQUALS:
-                // Try to parse as UUID first, fall back to string comparison
-                try {
-                    UUID.fromString(searchValue);
-                    parameters.add(searchValue);
+                // Compare as UUID when the value is one, otherwise fall back to string comparison
+                binders.add((p, parameters) -> parameters.add(p.getTextSearchValue()));
+                if (isUuid(searchParameter.getTextSearchValue())) {
                     return columnName + " = CAST(? AS UUID)";
-                } catch (IllegalArgumentException e) {
-                    // If not a valid UUID, convert to string for comparison
-                    parameters.add(searchValue);
-                    return "CAST(" + columnName + " AS TEXT) = ?";
                 }
+                return "CAST(" + columnName + " AS TEXT) = ?";
             case TEXT_STARTS_WITH:
-                parameters.add(searchValue + "%");
+                binders.add((p, parameters) -> parameters.add(p.getTextSearchValue() + "%"));
                 return "CAST(" + columnName + " AS TEXT) ILIKE ?";
             case TEXT_ENDS_WITH:
-                parameters.add("%" + searchValue);
+                binders.add((p, parameters) -> parameters.add("%" + p.getTextSearchValue()));
                 return "CAST(" + columnName + " AS TEXT) ILIKE ?";
             case TEXT_NOT_CONTAINS:
-                parameters.add("%" + searchValue + "%");
+                binders.add((p, parameters) -> parameters.add("%" + p.getTextSearchValue() + "%"));
                 return "CAST(" + columnName + " AS TEXT) NOT ILIKE ?";
             case TEXT_NOT_EQUALS:
-                try {
-                    UUID.fromString(searchValue);
-                    parameters.add(searchValue);
+                binders.add((p, parameters) -> parameters.add(p.getTextSearchValue()));
+                if (isUuid(searchParameter.getTextSearchValue())) {
                     return columnName + " != CAST(? AS UUID)";
-                } catch (IllegalArgumentException e) {
-                    parameters.add(searchValue);
-                    return "CAST(" + columnName + " AS TEXT) != ?";
                 }
+                return "CAST(" + columnName + " AS TEXT) != ?";
             default:
                 throw new RuntimeException("Invalid search parameter: " + searchParameter.getSearchType());
         }
     }
 
-    private String buildDecimalSearchCondition(String columnName, SearchParameter searchParameter, List<Object> parameters) {
-
-        if (searchParameter.getDoubleSearchValue() == null) {
-            throw new RuntimeException("Invalid search parameter: " + searchParameter.getSearchType());
-        }
+    private String buildDecimalSearchCondition(String columnName, SearchParameter searchParameter, List<RecordQueryPlan.ParameterBinder> binders) {
 
-        BigDecimal searchValue = searchParameter.getDoubleSearchValue();
+        RecordQueryPlan.ParameterBinder binder = (p, parameters) -> {
+            if (p.getDoubleSearchValue() == null) {
+                throw new RuntimeException("Invalid search parameter: " + p.getSearchType());
+            }
+            parameters.add(p.getDoubleSearchValue());
+        };
 
         switch (searchParameter.getSearchType()) {
             case DECIMAL_EQUALS:
-                parameters.add(searchValue);
+                binders.add(binder);
                 return columnName + " = ?";
             case DECIMAL_GREATER_THAN:
-                parameters.add(searchValue);
+                binders.add(binder);
                 return columnName + " > ?";
             case DECIMAL_LESS_THAN:
-                parameters.add(searchValue);
+                binders.add(binder);
                 return columnName + " < ?";
             default:
                 return null;
         }
     }
 
-    private String buildLongSearchCondition(String columnName, SearchParameter searchParameter, List<Object> parameters) {
+    private String buildLongSearchCondition(String columnName, SearchParameter searchParameter, List<RecordQueryPlan.ParameterBinder> binders) {
 
-        if (searchParameter.getLongSearchValue() == null) {
-            throw new RuntimeException("Long value is null");
-        }
-        long searchValue = searchParameter.getLongSearchValue();
+        RecordQueryPlan.ParameterBinder binder = (p, parameters) -> {
+            if (p.getLongSearchValue() == null) {
+                throw new RuntimeException("Long value is null");
+            }
+            parameters.add(p.getLongSearchValue());
+        };
 
         switch (searchParameter.getSearchType()) {
             case LONG_EQUALS:
-                parameters.add(searchValue);
+                binders.add(binder);
                 return columnName + " = ?";
             case LONG_GREATER_THAN:
-                parameters.add(searchValue);
+                binders.add(binder);
                 return columnName + " > ?";
             case LONG_LESS_THAN:
-                parameters.add(searchValue);
+                binders.add(binder);
                 return columnName + " < ?";
             default:
                 return null;
         }
     }
 
-    private String buildBooleanSearchCondition(String columnName, SearchParameter searchParameter, List<Object> parameters) {
+    private String buildBooleanSearchCondition(String columnName, SearchParameter searchParameter, List<RecordQueryPlan.ParameterBinder> binders) {
 
         switch (searchParameter.getSearchType()) {
-            case BOOLEAN_FALSE -> parameters.add(false);
-            case BOOLEAN_TRUE -> parameters.add(true);
+            case BOOLEAN_FALSE -> binders.add((p, parameters) -> parameters.add(false));
+            case BOOLEAN_TRUE -> binders.add((p, parameters) -> parameters.add(true));
             default -> throw new IllegalArgumentException("Invalid search parameter");
         }
 
@@ -1235,7 +1423,7 @@ public class ModelService {
 
     }
 
-    private String buildDateTimeSearchCondition(String columnName, SearchParameter searchParameter, List<Object> parameters) {
+    private String buildDateTimeSearchCondition(String columnName, SearchParameter searchParameter, List<RecordQueryPlan.ParameterBinder> binders) {
 
         SearchType searchType = searchParameter.getSearchType();
 
@@ -1243,53 +1431,66 @@ public class ModelService {
         switch (searchType) {
             case null: throw new IllegalArgumentException("Invalid search parameter");
             case DATE_TIME_BEFORE:
-                if (searchParameter.getDateTimeBefore() == null) {
-                    throw new IllegalArgumentException("Invalid search parameter");
-                }
-                parameters.add(searchParameter.getDateTimeBefore());
+                binders.add((p, parameters) -> parameters.add(requireSearchValue(p.getDateTimeBefore())));
                 return columnName + " < ?";
             case DATE_TIME_AFTER:
-                if (searchParameter.getDateTimeAfter() == null) {
-                    throw new IllegalArgumentException("Invalid search parameter");
-                }
-                parameters.add(searchParameter.getDateTimeAfter());
+                binders.add((p, parameters) -> parameters.add(requireSearchValue(p.getDateTimeAfter())));
                 return columnName + " > ?";
             case DATE_TIME_BETWEEN:
-                if (searchParameter.getDateTimeStart() == null || searchParameter.getDateTimeEnd() == null) {
-                    throw new IllegalArgumentException("Invalid search parameter");
-                }
-                parameters.add(searchParameter.getDateTimeStart());
-                parameters.add(searchParameter.getDateTimeEnd());
+                binders.add((p, parameters) -> {
+                    if (p.getDateTimeStart() == null || p.getDateTimeEnd() == null) {
+                        throw new IllegalArgumentException("Invalid search parameter");
+                    }
+                    parameters.add(p.getDateTimeStart());
+                    parameters.add(p.getDateTimeEnd());
+                });
                 return columnName + " >= ? AND " + columnName + " <= ?";
             default:
                 throw new IllegalArgumentException("Invalid search type");
         }
     }
 
-    private String buildDateSearchCondition(String columnName , SearchParameter searchParameter,  List<Object> parameters) {
-        try {
-            SearchType searchType = searchParameter.getSearchType();
-
-            switch (searchType) {
-                case DATE_ON:
-                        parameters.add(searchParameter.getDateOn().toString());
-                        return "DATE(" + columnName + ") = DATE(?)";
-                case DATE_BEFORE:
-                    parameters.add(searchParameter.getDateBefore().toString());
-                    return "DATE(" + columnName + ") < DATE(?)";
-                case DATE_AFTER:
-                    parameters.add(searchParameter.getDateAfter().toString());
-                    return "DATE(" + columnName + ") > DATE(?)";
-                case DATE_BETWEEN:
-                            parameters.add(searchParameter.getDateBefore().toString());
-                            parameters.add(searchParameter.getDateAfter().toString());
-                            return "DATE(" + columnName + ") >= DATE(?) AND DATE(" + columnName + ") <= DATE(?)";
-                default:
-                    throw new IllegalArgumentException("Invalid search type");
-            }
-        } catch (Exception e) {
-            log.warn("Failed to parse date search condition: {}", e.getMessage());
+    private Object requireSearchValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Invalid search parameter");
+        }
+        return value;
+    }
+
+    private String buildDateSearchCondition(String columnName , SearchParameter searchParameter,  List<RecordQueryPlan.ParameterBinder> binders) {
+        // Date presence is part of the plan key, so a plan compiled here only sees requests with the same dates set
+        switch (searchParameter.getSearchType()) {
+            case DATE_ON:
+                if (searchParameter.getDateOn() == null) {
+                    break;
+                }
+                binders.add((p, parameters) -> parameters.add(p.getDateOn().toString()));
+                return "DATE(" + columnName + ") = DATE(?)";
+            case DATE_BEFORE:
+                if (searchParameter.getDateBefore() == null) {
+                    break;
+                }
+                binders.add((p, parameters) -> parameters.add(p.getDateBefore().toString()));
+                return "DATE(" + columnName + ") < DATE(?)";
+            case DATE_AFTER:
+                if (searchParameter.getDateAfter() == null) {
+                    break;
+                }
+                binders.add((p, parameters) -> parameters.add(p.getDateAfter().toString()));
+                return "DATE(" + columnName + ") > DATE(?)";
+            case DATE_BETWEEN:
+                if (searchParameter.getDateBefore() == null || searchParameter.getDateAfter() == null) {
+                    break;
+                }
+                binders.add((p, parameters) -> {
+                    parameters.add(p.getDateBefore().toString());
+                    parameters.add(p.getDateAfter().toString());
+                });
+                return "DATE(" + columnName + ") >= DATE(?) AND DATE(" + columnName + ") <= DATE(?)";
+            default:
+                break;
         }
+        log.warn("Failed to parse date search condition: missing date value for {}", searchParameter.getSearchType());
         return null;
     }
 
@@ -1302,48 +1503,9 @@ public class ModelService {
         return nextMinute.toString();
     }
 
-    private Object convertFromDatabase(Object value, FieldType fieldType) {
-        if (value == null) {
-            return null;
-        }
-
-        return switch (fieldType) {
-            case EMAIL, SINGLE_LINE_TEXT, MULTI_LINE_TEXT -> value.toString();
-            case DECIMAL -> {
-                if (value instanceof Number) {
-                    yield value;
-                }
-                yield new java.math.BigDecimal(value.toString());
-            }
-            case LONG -> {
-                if (value instanceof Number) {
-                    yield ((Number) value).longValue();
-                }
-                yield Long.valueOf(value.toString());
-            }
-            case BOOLEAN -> {
-                if (value instanceof Boolean) {
-                    yield value;
-                }
-                yield Boolean.parseBoolean(value.toString());
-            }
-            case DATE -> {
-                if (value instanceof java.sql.Date) {
-                    yield value.toString(); // Return as ISO date string
-                }
-                yield value.toString();
-            }
-            case DATETIME -> {
-                if (value instanceof java.sql.Timestamp) {
-                    yield ((java.sql.Timestamp) value).toInstant(); // Return as Instant for consistency
-                }
-                yield value;
-            }
-        };
-    }
-
     @Transactional
     public void linkModels(LinkModelsRequest linkModelsRequest) {
+        modelMetadataCache.invalidate();
 
         UUID model1Id = linkModelsRequest.getModel1Id();
         UUID model2Id = linkModelsRequest.getModel2Id();
@@ -1370,6 +1532,7 @@ public class ModelService {
         String tableName = "model_links_" + sanitizeIdentifier(linkId.toString());
         String sql = "CREATE TABLE " + tableName + " (id UUID PRIMARY KEY NOT NULL DEFAULT gen_random_uuid(), record1_id UUID NOT NULL, record2_id UUID NOT NULL, created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP);";
         jdbcTemplate.execute(sql);
+        modelStatsService.initialize(linkId);
 
         log.debug("Model Link Table Created");
 
@@ -1403,6 +1566,7 @@ public class ModelService {
 
     @Transactional
     public void updatelinkModels(UpdateLinkedModelsRequest updateLinkedModelsRequest) {
+        modelMetadataCache.invalidate();
         ModelLink link = modelLinkRepository.findById(updateLinkedModelsRequest.getModelLinkId()).orElseThrow(() -> new RuntimeException("Link with id " + updateLinkedModelsRequest.getModelLinkId() + " does not exist"));
         link.setModel1CanHaveSoManyModel2sCount(updateLinkedModelsRequest.getModel1_can_have_so_many_model2s_count());
         link.setModel2CanHaveSoManyModel1sCount(updateLinkedModelsRequest.getModel2_can_have_so_many_model1s_count());
@@ -1413,6 +1577,7 @@ public class ModelService {
 
     @Transactional
     public void deleteModelLink(DeleteModelLinkRequest updateLinkedModelsRequest) {
+        modelMetadataCache.invalidate();
         //Validate Model Link ID
         ModelLink link = modelLinkRepository.findById(updateLinkedModelsRequest.getModelLinkId()).orElseThrow(() -> new RuntimeException("Link with id " + updateLinkedModelsRequest.getModelLinkId() + " does not exist"));
         modelLinkRepository.deleteById(link.getId());
@@ -1420,11 +1585,15 @@ public class ModelService {
         //Now delete the references table
         String sql = "DROP TABLE model_links_" + sanitizeIdentifier(link.getId().toString());
         jdbcTemplate.update(sql);
+        modelStatsService.delete(link.getId());
+        recordQueryPlanCache.invalidateModel(link.getModel1Id());
+        recordQueryPlanCache.invalidateModel(link.getModel2Id());
     }
 
 
     @Transactional
     public void deleteField(UUID fieldId) {
+        modelMetadataCache.invalidate();
         // First check if the field exists
         Field field = fieldRepository.findById(fieldId).orElseThrow(() -> new IllegalArgumentException("Invalid field id"));
         Model model = modelRepository.findById(field.getModelId()).orElseThrow(() -> new IllegalArgumentException("Invalid field id"));
@@ -1432,16 +1601,24 @@ public class ModelService {
         String sql = "ALTER TABLE " + "records_" + sanitizeIdentifier(modelId.toString()) + " DROP COLUMN " + "field_" + sanitizeIdentifier(fieldId.toString());
         jdbcTemplate.execute(sql);
         fieldRepository.deleteById(fieldId);
+        fieldIndexService.forgetField(fieldId);
+        if (isTextField(field.getType())) {
+            // The indexed documents still contain the words of the dropped column
+            searchIndexService.scheduleRefresh(modelId);
+        }
+        recordQueryPlanCache.invalidateModel(modelId);
     }
 
     @Transactional
     public void addField(UUID modelId, FieldDto fieldDto) {
+        modelMetadataCache.invalidate();
         Model model = modelRepository.findById(modelId).orElseThrow(() -> new IllegalArgumentException("Invalid field id"));
         Field field = new Field();
         field.setDescription(fieldDto.getDescription());
         field.setName(fieldDto.getName());
         field.setIsRequired(fieldDto.getIsRequired());
         field.setType(fieldDto.getType());
+        field.setIsIndexed(Boolean.TRUE.equals(fieldDto.getIsIndexed()));
         field.setModelId(modelId);
         fieldRepository.save(field);
 
@@ -1453,10 +1630,15 @@ public class ModelService {
         String columnType = mapFieldTypeToPostgresType(fieldDto.getType());
         String sql = "ALTER TABLE records_" + sanitizeIdentifier(modelId.toString()) + " ADD COLUMN field_" + sanitizeIdentifier(fieldId.toString()) + " " + columnType;
         jdbcTemplate.execute(sql);
+        recordQueryPlanCache.invalidateModel(modelId);
+        if (field.getIsIndexed()) {
+            fieldIndexService.scheduleBuild(field);
+        }
     }
 
     @Transactional
     public FieldDto duplicateField(UUID originalFieldId, DuplicateFieldRequest request) {
+        modelMetadataCache.invalidate();
         // 1. Get original field
         Field originalField = fieldRepository.findById(originalFieldId)
                 .orElseThrow(() -> new FrontendException("Field not found", ErrorCode.GENERAL_ERROR, true));
@@ -1504,6 +1686,7 @@ public class ModelService {
 
         String addColumnSql = "ALTER TABLE " + tableName + " ADD COLUMN " + newColumnName + " " + columnType;
         jdbcTemplate.execute(addColumnSql);
+        recordQueryPlanCache.invalidateModel(modelId);
 
         log.info("Created duplicate field '{}' (ID: {}, type: {}) from original field '{}' (ID: {}, type: {})",
                 newField.getName(), newFieldId, newType, originalField.getName(), originalFieldId, originalType);
@@ -1522,6 +1705,10 @@ public class ModelService {
                 );
             }
         }
+        if (request.isCopyData() && isTextField(newType)) {
+            // The indexed documents do not contain the copied values yet
+            searchIndexService.scheduleRefresh(modelId);
+        }
 
         // 9. Convert to DTO and return
         FieldDto fieldDto = new FieldDto();
@@ -1530,6 +1717,7 @@ public class ModelService {
         fieldDto.setType(newField.getType());
         fieldDto.setDescription(newField.getDescription());
         fieldDto.setIsRequired(newField.getIsRequired());
+        fieldDto.setIsIndexed(newField.getIsIndexed());
 
         return fieldDto;
     }
@@ -1623,6 +1811,7 @@ public class ModelService {
 
     @Transactional
     public void updateModel(UUID modelId, UpdateModelRequest updateModelRequest) {
+        modelMetadataCache.invalidate();
         Model model = modelRepository.findById(modelId).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
         model.setName(updateModelRequest.getModelName());
         model.setDescription(updateModelRequest.getModelDescription());
@@ -1631,35 +1820,59 @@ public class ModelService {
 
     @Transactional
     public void updateField(UUID fieldId, UpdateFieldRequest updateFieldRequest) {
+        modelMetadataCache.invalidate();
         Field field = fieldRepository.findById(fieldId).orElseThrow(() -> new IllegalArgumentException("Invalid field id"));
         field.setName(updateFieldRequest.getName());
         field.setIsRequired(updateFieldRequest.isRequired());
         field.setDescription(updateFieldRequest.getDescription());
+        boolean wasIndexed = field.getIsIndexed();
+        if (updateFieldRequest.getIsIndexed() != null) {
+            field.setIsIndexed(updateFieldRequest.getIsIndexed());
+        }
         fieldRepository.save(field);
+        recordQueryPlanCache.invalidateModel(field.getModelId());
+
+        if (field.getIsIndexed()) {
+            // Also rebuilds missing or invalid indexes of an indexed field
+            fieldIndexService.scheduleBuild(field);
+        } else if (wasIndexed) {
+            fieldIndexService.scheduleDrop(field);
+        }
+    }
+
+    public List<FieldIndexStatusDto> getFieldIndexStatuses() {
+        return fieldIndexService.getIndexStatuses();
+    }
+
+    public PermissionCacheStatsDto getPermissionCacheStats() {
+        return userPermissionCache.getStats();
+    }
+
+    public QueryPlanCacheStatsDto getQueryPlanCacheStats() {
+        return recordQueryPlanCache.getStats();
     }
 
     @Transactional(readOnly = true)
     public GetModelLinksResponse getModelLinks() {
         GetModelLinksResponse response = new GetModelLinksResponse();
-        List<ModelLink> links = new ArrayList<>();
-        modelLinkRepository.findAll().forEach(link -> links.add(link));
-        List<ModelLinkDto> modelLinkDtos = new ArrayList<>();
-        for (ModelLink link : links) {
-            ModelLinkDto modelLinkDto = new ModelLinkDto();
-            modelLinkDto.setModelLinkId(link.getId());
-            modelLinkDto.setModel1Id(link.getModel1Id());
-            modelLinkDto.setModel2Id(link.getModel2Id());
-            modelLinkDto.setModel1_can_have_so_many_model2s_count(link.getModel1CanHaveSoManyModel2sCount());
-            modelLinkDto.setModel2_can_have_so_many_model1s_count(link.getModel2CanHaveSoManyModel1sCount());
-            modelLinkDto.setModel1_can_have_unlimited_model2s(link.isModel1CanHaveUnlimitedModel2s());
-            modelLinkDto.setModel2_can_have_unlimited_model1s(link.isModel2CanHaveUnlimitedModel1s());
-            // Get individual model Info
-            Model model = modelRepository.findById(modelLinkDto.getModel1Id()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
-            modelLinkDto.setModel1Name(model.getName());
-            model = modelRepository.findById(modelLinkDto.getModel2Id()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
-            modelLinkDto.setModel2Name(model.getName());
-            modelLinkDtos.add(modelLinkDto);
-        }
+        // One query with the names of both models, instead of two model lookups per link
+        List<ModelLinkDto> modelLinkDtos = jdbcTemplate.query(
+                "SELECT ml.id, ml.model_1_id, ml.model_2_id, ml.model1_can_have_unlimited_model2s, ml.model2_can_have_unlimited_model1s, " +
+                        "ml.model1_can_have_so_many_model2s_count, ml.model2_can_have_so_many_model1s_count, m1.name, m2.name " +
+                        "FROM model_links ml JOIN models m1 ON m1.id = ml.model_1_id JOIN models m2 ON m2.id = ml.model_2_id",
+                (rs, rowNum) -> {
+                    ModelLinkDto modelLinkDto = new ModelLinkDto();
+                    modelLinkDto.setModelLinkId(rs.getObject(1, UUID.class));
+                    modelLinkDto.setModel1Id(rs.getObject(2, UUID.class));
+                    modelLinkDto.setModel2Id(rs.getObject(3, UUID.class));
+                    modelLinkDto.setModel1_can_have_unlimited_model2s(rs.getBoolean(4));
+                    modelLinkDto.setModel2_can_have_unlimited_model1s(rs.getBoolean(5));
+                    modelLinkDto.setModel1_can_have_so_many_model2s_count(rs.getObject(6, Long.class));
+                    modelLinkDto.setModel2_can_have_so_many_model1s_count(rs.getObject(7, Long.class));
+                    modelLinkDto.setModel1Name(rs.getString(8));
+                    modelLinkDto.setModel2Name(rs.getString(9));
+                    return modelLinkDto;
+                });
         response.setModelLinks(modelLinkDtos);
         return response;
     }
@@ -1682,8 +1895,8 @@ public class ModelService {
         UUID modelLinkId = request.getModelLinkId();
 
         //Check if source model ID exists
-        Model sourceModel = modelRepository.findById(request.getSourceModelId()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
-        ModelLink modelLink = modelLinkRepository.findById(modelLinkId).orElseThrow(() -> new IllegalArgumentException("Invalid model link id"));
+        Model sourceModel = modelMetadataCache.getModel(request.getSourceModelId()).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
+        ModelLink modelLink = modelMetadataCache.getModelLink(modelLinkId).orElseThrow(() -> new IllegalArgumentException("Invalid model link id"));
 
         UUID targetModelId;
         int sourceRecord;
@@ -1709,7 +1922,7 @@ public class ModelService {
         }
 
         //Check if target model exists
-        Model targetModel = modelRepository.findById(targetModelId).orElseThrow(() -> new IllegalArgumentException("Target Model not found"));
+        Model targetModel = modelMetadataCache.getModel(targetModelId).orElseThrow(() -> new IllegalArgumentException("Target Model not found"));
 
         //CHeck if source record exists
         String sourceTable = "records_" + sanitizeIdentifier(sourceModel.getId().toString());
@@ -1788,11 +2001,12 @@ public class ModelService {
                 "('" + record1 + "','" + record2 + "')";
 
         jdbcTemplate.execute(sql);
+        modelStatsService.add(modelLinkId, 1);
     }
 
     @Transactional(readOnly = true)
     public List<LinkedRecordCount> getLinkedRecordCounts(UUID sourceModelId, UUID sourceRecordId) {
-        List<ModelLink> modelLinks = modelLinkRepository.findByEitherModelId(sourceModelId);
+        List<ModelLink> modelLinks = modelMetadataCache.getModelLinks(sourceModelId);
         List <LinkedRecordCount> linkedRecordCounts = new ArrayList<>();
         UUID targetModelId;
         int record;
@@ -1806,7 +2020,7 @@ public class ModelService {
             } else {
                 throw new IllegalArgumentException("Invalid model id");
             }
-            Model targetModel = modelRepository.findById(targetModelId).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
+            Model targetModel = modelMetadataCache.getModel(targetModelId).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
             String sql = "SELECT count(*) FROM model_links_" + sanitizeIdentifier(modelLink.getId().toString()) +
                     " WHERE record" + record + "_id = ?";
 
@@ -1823,6 +2037,7 @@ public class ModelService {
 
     @Transactional
     public void deleteModel(UUID modelId, boolean force) {
+        modelMetadataCache.invalidate();
         //Validate model id
         modelRepository.findById(modelId).orElseThrow(() -> new IllegalArgumentException("Model not found"));
 
@@ -1847,6 +2062,7 @@ public class ModelService {
         for (LinkedRecordCount linkedRecordCount : linkedRecordCounts) {
             String sql = "DELETE FROM model_links WHERE id = ?";
             jdbcTemplate.update(sql, linkedRecordCount.getLinkId());
+            modelStatsService.delete(linkedRecordCount.getLinkId());
         }
         //Now delete the records table
         {
@@ -1863,12 +2079,17 @@ public class ModelService {
         //Remove the model from models table
         String sql = "DELETE FROM models WHERE id = ?";
         jdbcTemplate.update(sql, modelId);
+        modelStatsService.delete(modelId);
+        searchIndexService.deleteModel(modelId);
+        fieldIndexService.forgetModel(modelId);
+        userPermissionCache.invalidateAll();
+        recordQueryPlanCache.invalidateModel(modelId);
 
     }
 
     @Transactional(readOnly = true)
     public List<LinkedRecordCount> getLinkedRecordCounts(UUID sourceModelId) {
-        List<ModelLink> modelLinks = modelLinkRepository.findByEitherModelId(sourceModelId);
+        List<ModelLink> modelLinks = modelMetadataCache.getModelLinks(sourceModelId);
         List <LinkedRecordCount> linkedRecordCounts = new ArrayList<>();
         UUID targetModelId;
         for (ModelLink modelLink : modelLinks) {
@@ -1879,10 +2100,13 @@ public class ModelService {
             } else {
                 throw new IllegalArgumentException("Invalid model id");
             }
-            Model targetModel = modelRepository.findById(targetModelId).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
-            String sql = "SELECT count(*) FROM model_links_" + sanitizeIdentifier(modelLink.getId().toString());
-
-            long count = jdbcTemplate.queryForObject(sql, Long.class);
+            Model targetModel = modelMetadataCache.getModel(targetModelId).orElseThrow(() -> new IllegalArgumentException("Invalid model id"));
+            Long count = modelStatsService.getCount(modelLink.getId());
+            if (count == null) {
+                // Counter not seeded yet
+                String sql = "SELECT count(*) FROM model_links_" + sanitizeIdentifier(modelLink.getId().toString());
+                count = jdbcTemplate.queryForObject(sql, Long.class);
+            }
 
             LinkedRecordCount linkedRecordCount = new LinkedRecordCount();
             linkedRecordCount.setLinkId(modelLink.getId());
@@ -1897,7 +2121,7 @@ public class ModelService {
     @Transactional
     public void deleteRecordLink(UUID userId, UUID modelLinkId, UUID linkId) {
         //Check UUID's
-        ModelLink modelLink = modelLinkRepository.findById(modelLinkId).orElseThrow(() -> new RuntimeException("modelLink not found"));
+        ModelLink modelLink = modelMetadataCache.getModelLink(modelLinkId).orElseThrow(() -> new RuntimeException("modelLink not found"));
 
         // Perform permissions checks
         if (!userHasGivenPermissionOnModel(userId, modelLink.getModel1Id(), ModelPermission.VIEW_RECORDS)) {
@@ -1927,6 +2151,7 @@ public class ModelService {
         }
         //Delete link
         String sqlDelete = "DELETE FROM model_links_" + sanitizeIdentifier(modelLinkId.toString()) + " WHERE id = ?";
-        jdbcTemplate.update(sqlDelete, linkId);
+        int deleted = jdbcTemplate.update(sqlDelete, linkId);
+        modelStatsService.add(modelLinkId, -deleted);
     }
 }
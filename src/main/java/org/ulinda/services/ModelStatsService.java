@@ -0,0 +1,99 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Row counters for records tables (keyed by model id) and model link tables (keyed by model link id).
+ * Each counter is striped over several slots in model_stats so concurrent writers rarely update the same row;
+ * the count is the sum of the slots. Counters that were never initialized have no slots, updates to them are
+ * ignored and reads return null until {@link #reconcile(UUID, String)} seeds them.
+ */
+@Service
+@Slf4j
+public class ModelStatsService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ulinda.model-stats.slots:16}")
+    private int slots;
+
+    private TransactionTemplate snapshotTemplate;
+
+    @PostConstruct
+    void createSnapshotTemplate() {
+        snapshotTemplate = new TransactionTemplate(transactionManager);
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Creates the slots of a new, empty counter. Must run in the transaction that creates the table.
+     */
+    public void initialize(UUID scopeId) {
+        jdbcTemplate.update("INSERT INTO model_stats (scope_id, slot, row_count) " +
+                "SELECT ?, s, 0 FROM generate_series(0, ? - 1) s ON CONFLICT (scope_id, slot) DO NOTHING", scopeId, slots);
+    }
+
+    /**
+     * Adds delta to one random slot of the counter, in the caller's transaction.
+     */
+    public void add(UUID scopeId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        jdbcTemplate.update("UPDATE model_stats SET row_count = row_count + ? WHERE scope_id = ? AND slot = ?",
+                delta, scopeId, slot);
+    }
+
+    /**
+     * Returns the exact row count, or null when the counter is not initialized.
+     */
+    public Long getCount(UUID scopeId) {
+        return jdbcTemplate.queryForObject("SELECT SUM(row_count)::bigint FROM model_stats WHERE scope_id = ?",
+                Long.class, scopeId);
+    }
+
+    public void delete(UUID scopeId) {
+        jdbcTemplate.update("DELETE FROM model_stats WHERE scope_id = ?", scopeId);
+    }
+
+    /**
+     * Recounts the table and repairs the counter when it drifted. The counter and the table are read in one
+     * repeatable read snapshot without locks, so writers are not blocked during the count; counter and rows change
+     * in the same transaction, so in that snapshot they agree unless the counter drifted. The drift is then added
+     * to one slot, which commutes with the updates writers made since the snapshot. Must not run inside a
+     * transaction.
+     */
+    public void reconcile(UUID scopeId, String tableName) {
+        // Seeds a counter that has no slots yet, committed before the snapshot so writers start counting
+        initialize(scopeId);
+        long[] snapshot = snapshotTemplate.execute(status -> {
+            Long counted = getCount(scopeId);
+            Long actual = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"" + tableName + "\"", Long.class);
+            return new long[]{counted != null ? counted : 0, actual != null ? actual : 0};
+        });
+        long drift = snapshot[1] - snapshot[0];
+        if (drift == 0) {
+            return;
+        }
+        log.info("Repairing row counter of {}: counter was {}, table has {}", tableName, snapshot[0], snapshot[1]);
+        jdbcTemplate.update("UPDATE model_stats SET row_count = row_count + ? WHERE scope_id = ? AND slot = 0",
+                drift, scopeId);
+    }
+}
@@ -0,0 +1,190 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.ulinda.dto.HashingStatsDto;
+import org.ulinda.exceptions.ServerBusyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs all password and API token hashing on a small pool with a bounded queue, so a burst of logins cannot
+ * occupy every request thread with BCrypt. When the queue is full the request is rejected right away with a
+ * {@link ServerBusyException} instead of waiting behind the burst.
+ */
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("tokenEncoder")
+    private PasswordEncoder tokenEncoder;
+
+    // Defaults to one thread per core, BCrypt is CPU bound
+    @Value("${ulinda.hashing.threads:0}")
+    private int threads;
+
+    @Value("${ulinda.hashing.queue-size:200}")
+    private int queueSize;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public String encode(String rawPassword) {
+        return await(submit(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(submit(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Returns whether a stored password hash was made with another strength than the current one, and should be
+     * replaced after the next successful check. Does not hash, so it does not go through the pool.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public String encodeToken(String token) {
+        return await(submit(() -> tokenEncoder.encode(token)));
+    }
+
+    public boolean matchesToken(String token, String encodedToken) {
+        return await(submit(() -> tokenEncoder.matches(token, encodedToken)));
+    }
+
+    /**
+     * Checks a password against several hashes in parallel. Returns on the first match and cancels the checks
+     * that have not started.
+     */
+    public boolean matchesAny(String rawPassword, List<String> encodedPasswords) {
+        if (encodedPasswords.isEmpty()) {
+            return false;
+        }
+        ExecutorCompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Boolean>> futures = new ArrayList<>(encodedPasswords.size());
+        try {
+            for (String encodedPassword : encodedPasswords) {
+                futures.add(submit(completionService, () -> passwordEncoder.matches(rawPassword, encodedPassword)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (await(completionService.take())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    public HashingStatsDto getStats() {
+        HashingStatsDto stats = new HashingStatsDto();
+        stats.setThreads(executor.getMaximumPoolSize());
+        stats.setActive(executor.getActiveCount());
+        stats.setQueued(executor.getQueue().size());
+        stats.setQueueSize(queueSize);
+        long hashCount = hashed.sum();
+        stats.setHashed(hashCount);
+        stats.setRejected(rejected.sum());
+        stats.setAverageHashMs(hashCount > 0 ? hashNanos.sum() / 1_000_000.0 / hashCount : 0);
+        stats.setAverageQueueWaitMs(hashCount > 0 ? queueWaitNanos.sum() / 1_000_000.0 / hashCount : 0);
+        return stats;
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(timed(task));
+        } catch (RejectedExecutionException e) {
+            throw rejectedException();
+        }
+    }
+
+    private <T> Future<T> submit(ExecutorCompletionService<T> completionService, Callable<T> task) {
+        try {
+            return completionService.submit(timed(task));
+        } catch (RejectedExecutionException e) {
+            throw rejectedException();
+        }
+    }
+
+    private ServerBusyException rejectedException() {
+        rejected.increment();
+        log.warn("Password hashing queue is full ({} queued), rejecting request", executor.getQueue().size());
+        return new ServerBusyException("The server is busy. Please try again shortly.");
+    }
+
+    private <T> Callable<T> timed(Callable<T> task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            queueWaitNanos.add(started - submitted);
+            try {
+                return task.call();
+            } finally {
+                hashNanos.add(System.nanoTime() - started);
+                hashed.increment();
+            }
+        };
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.ulinda.services;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.ulinda.dto.SecuritySettingsDto;
@@ -18,15 +17,15 @@ import java.util.UUID;
 public class PasswordHistoryService {
 
     private final PasswordHistoryRepository passwordHistoryRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final SecuritySettingsService securitySettingsService;
 
     public PasswordHistoryService(
             PasswordHistoryRepository passwordHistoryRepository,
-            PasswordEncoder passwordEncoder,
+            PasswordHashingService passwordHashingService,
             SecuritySettingsService securitySettingsService) {
         this.passwordHistoryRepository = passwordHistoryRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.securitySettingsService = securitySettingsService;
     }
 
@@ -47,15 +46,8 @@ public class PasswordHistoryService {
         // Get password history for user, ordered by most recent first
         List<PasswordHistory> history = passwordHistoryRepository.findByUserIdOrderByCreatedAtDesc(userId);
 
-        // Check if plain text password matches any stored hash
-        for (PasswordHistory entry : history) {
-            if (passwordEncoder.matches(plainTextPassword, entry.getPasswordHash())) {
-                log.debug("Password matches history entry from {}", entry.getCreatedAt());
-                return true;
-            }
-        }
-
-        return false;
+        // Check if plain text password matches any stored hash, all entries in parallel
+        return passwordHashingService.matchesAny(plainTextPassword, history.stream().map(PasswordHistory::getPasswordHash).toList());
     }
 
     /**
@@ -0,0 +1,138 @@
+package org.ulinda.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.ulinda.enums.CountMode;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Counts records for the record search in the requested {@link CountMode}. Exact counts run with a statement
+ * timeout inside a savepoint, so a slow count falls back to the planner estimate without aborting the
+ * surrounding read transaction.
+ */
+@Service
+@Slf4j
+public class RecordCountService {
+
+    public record CountResult(long count, CountMode mode) {
+        static final CountResult NONE = new CountResult(-1L, CountMode.NONE);
+    }
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ModelStatsService modelStatsService;
+    private final TransactionTemplate savepointTemplate;
+
+    @Value("${ulinda.records.exact-count-timeout-ms:2000}")
+    private long exactCountTimeoutMs;
+
+    public RecordCountService(JdbcTemplate jdbcTemplate, ModelStatsService modelStatsService,
+                              PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.modelStatsService = modelStatsService;
+        this.savepointTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    /**
+     * Counts all records of the plan's table. The model's row counter gives an exact count in any mode but NONE;
+     * the requested mode is only used while the counter is not seeded yet.
+     */
+    public CountResult countAll(UUID modelId, RecordQueryPlan plan, CountMode mode) {
+        if (mode == CountMode.NONE) {
+            return CountResult.NONE;
+        }
+        Long counted = modelStatsService.getCount(modelId);
+        if (counted != null) {
+            return new CountResult(counted, CountMode.EXACT);
+        }
+        return switch (mode) {
+            case NONE -> CountResult.NONE;
+            case ESTIMATED -> new CountResult(estimateTableRows(plan.getTableName()), CountMode.ESTIMATED);
+            case EXACT -> {
+                Long count = countWithTimeout(plan.getActualRecordCountSql(), List.of());
+                yield count != null
+                        ? new CountResult(count, CountMode.EXACT)
+                        : new CountResult(estimateTableRows(plan.getTableName()), CountMode.ESTIMATED);
+            }
+        };
+    }
+
+    /**
+     * Counts the records matching the plan's filters. The parameters are the bound filter parameters of the plan.
+     */
+    public CountResult countMatching(RecordQueryPlan plan, List<Object> parameters, CountMode mode) {
+        return switch (mode) {
+            case NONE -> CountResult.NONE;
+            case ESTIMATED -> new CountResult(estimateQueryRows(plan.getEstimateSql(), parameters), CountMode.ESTIMATED);
+            case EXACT -> {
+                Long count = countWithTimeout(plan.getCountSql(), parameters);
+                yield count != null
+                        ? new CountResult(count, CountMode.EXACT)
+                        : new CountResult(estimateQueryRows(plan.getEstimateSql(), parameters), CountMode.ESTIMATED);
+            }
+        };
+    }
+
+    /**
+     * Runs the count with a statement timeout. Returns null when the count timed out or failed.
+     */
+    private Long countWithTimeout(String countSql, List<Object> parameters) {
+        try {
+            return savepointTemplate.execute(status -> {
+                // SET LOCAL is undone when the savepoint rolls back, and reset explicitly on success
+                jdbcTemplate.execute("SET LOCAL statement_timeout = " + exactCountTimeoutMs);
+                Long count = jdbcTemplate.queryForObject(countSql, Long.class, parameters.toArray());
+                jdbcTemplate.execute("SET LOCAL statement_timeout TO DEFAULT");
+                return count;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Exact count did not finish within {} ms, using estimate: {}", exactCountTimeoutMs, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Estimates the table's row count from pg_class, scaled to the current table size the same way the planner
+     * does. Tables that were never analyzed fall back to the planner estimate.
+     */
+    private long estimateTableRows(String tableName) {
+        String sql = "SELECT CASE WHEN c.reltuples < 0 OR c.relpages = 0 THEN -1 " +
+                "ELSE (c.reltuples / c.relpages * (pg_relation_size(c.oid) / current_setting('block_size')::int))::bigint END " +
+                "FROM pg_class c WHERE c.oid = to_regclass(?)";
+        try {
+            Long estimate = jdbcTemplate.queryForObject(sql, Long.class, tableName);
+            if (estimate != null && estimate >= 0) {
+                return estimate;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read row estimate for table {}: {}", tableName, e.getMessage());
+        }
+        return estimateQueryRows("EXPLAIN (FORMAT JSON) SELECT 1 FROM \"" + tableName + "\"", List.of());
+    }
+
+    /**
+     * Returns the planner's row estimate of an EXPLAIN (FORMAT JSON) statement, or -1 when it is unavailable.
+     */
+    private long estimateQueryRows(String explainSql, List<Object> parameters) {
+        try {
+            String plan = jdbcTemplate.queryForObject(explainSql, String.class, parameters.toArray());
+            JsonNode planRows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            return planRows.isNumber() ? planRows.asLong() : -1L;
+        } catch (Exception e) {
+            log.warn("Could not get planner estimate: {}", e.getMessage());
+            return -1L;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.ulinda.services;
+
+import org.ulinda.enums.ExportFormat;
+
+import java.util.List;
+
+/**
+ * A validated record export, ready to be streamed by {@link RecordExportService}.
+ */
+public record RecordExport(RecordQueryPlan plan, List<Object> parameters, ExportFormat format, boolean gzip) {
+}
@@ -0,0 +1,207 @@
+package org.ulinda.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.ulinda.entities.Field;
+import org.ulinda.enums.ExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the records of an export straight from a forward-only cursor to the response, one row at a time,
+ * so memory use does not depend on the number of records.
+ */
+@Service
+@Slf4j
+public class RecordExportService {
+
+    // Column positions of the compiled ALL_RECORDS query: id, created_at, updated_at, then the fields
+    private static final int FIRST_FIELD_COLUMN = 4;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ulinda.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Runs in a transaction because the PostgreSQL driver only fetches in batches with auto-commit off.
+     */
+    @Transactional(readOnly = true)
+    public void writeExport(RecordExport export, OutputStream outputStream) throws IOException {
+        OutputStream out = export.gzip() ? new GZIPOutputStream(outputStream, 8192) : outputStream;
+        List<Field> fields = export.plan().getFields();
+        try {
+            if (export.format() == ExportFormat.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                writeCsvHeader(writer, fields);
+                streamRows(export, rs -> writeCsvRow(writer, rs, fields));
+                writer.flush();
+            } else {
+                JsonGenerator generator = jsonFactory.createGenerator(out);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                streamRows(export, rs -> writeJsonRow(generator, rs, fields));
+                generator.flush();
+            }
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is closed and the transaction rolled back
+            throw e.getCause();
+        }
+        if (out instanceof GZIPOutputStream gzipOutputStream) {
+            gzipOutputStream.finish();
+        }
+        out.flush();
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private void streamRows(RecordExport export, RowWriter rowWriter) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(export.plan().getQuerySql(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(export.parameters().toArray()).setValues(ps);
+            return ps;
+        }, rs -> {
+            try {
+                rowWriter.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeJsonRow(JsonGenerator generator, ResultSet rs, List<Field> fields) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", rs.getObject(1, UUID.class).toString());
+        writeJsonTimestamp(generator, "createdAt", rs.getTimestamp(2));
+        writeJsonTimestamp(generator, "updatedAt", rs.getTimestamp(3));
+        generator.writeObjectFieldStart("fieldValues");
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            int column = FIRST_FIELD_COLUMN + i;
+            generator.writeFieldName(field.getId().toString());
+            switch (field.getType()) {
+                case DECIMAL -> {
+                    BigDecimal value = rs.getBigDecimal(column);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                }
+                case LONG -> {
+                    long value = rs.getLong(column);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                }
+                case BOOLEAN -> {
+                    boolean value = rs.getBoolean(column);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeBoolean(value);
+                    }
+                }
+                case DATETIME -> {
+                    Timestamp value = rs.getTimestamp(column);
+                    generator.writeString(value != null ? value.toInstant().toString() : null);
+                }
+                default -> generator.writeString(rs.getString(column));
+            }
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeJsonTimestamp(JsonGenerator generator, String name, Timestamp timestamp) throws IOException {
+        generator.writeStringField(name, timestamp != null ? timestamp.toInstant().toString() : null);
+    }
+
+    private void writeCsvHeader(Writer writer, List<Field> fields) throws IOException {
+        writer.write("id,created_at,updated_at");
+        for (Field field : fields) {
+            writer.write(',');
+            writeCsvValue(writer, field.getName());
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvRow(Writer writer, ResultSet rs, List<Field> fields) throws SQLException, IOException {
+        writer.write(rs.getObject(1, UUID.class).toString());
+        writer.write(',');
+        writeCsvValue(writer, toInstantString(rs.getTimestamp(2)));
+        writer.write(',');
+        writeCsvValue(writer, toInstantString(rs.getTimestamp(3)));
+        for (int i = 0; i < fields.size(); i++) {
+            int column = FIRST_FIELD_COLUMN + i;
+            writer.write(',');
+            switch (fields.get(i).getType()) {
+                case DATETIME -> writeCsvValue(writer, toInstantString(rs.getTimestamp(column)));
+                case BOOLEAN -> {
+                    boolean value = rs.getBoolean(column);
+                    writeCsvValue(writer, rs.wasNull() ? null : Boolean.toString(value));
+                }
+                // NUMERIC, BIGINT and DATE have a plain text form
+                default -> writeCsvValue(writer, rs.getString(column));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private String toInstantString(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant().toString() : null;
+    }
+
+    /**
+     * Writes a CSV value, quoted when it contains a separator, quote or line break (RFC 4180). Null is written
+     * as an empty value.
+     */
+    private void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,83 @@
+package org.ulinda.services;
+
+import lombok.Getter;
+import org.ulinda.dto.SearchParameter;
+import org.ulinda.entities.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A compiled record search query. Holds the ready SQL text, the row mapper
+ * and the parameter binders so that a request only has to bind values.
+ */
+@Getter
+public class RecordQueryPlan {
+
+    /**
+     * Adds the bind values of one search parameter to the parameter list, in placeholder order.
+     */
+    @FunctionalInterface
+    public interface ParameterBinder {
+        void bind(SearchParameter searchParameter, List<Object> parameters);
+    }
+
+    public record IndexedBinder(int searchParameterIndex, ParameterBinder binder) {
+    }
+
+    /**
+     * Where a page starts. Rows are ordered by (sort value, id) with null sort values after all others when
+     * ascending and before them when descending, so a page that runs out of values continues in the nulls
+     * (ascending) or in the values (descending, after the nulls).
+     */
+    public enum KeysetBound {
+        NONE,            // First page
+        AFTER_VALUE,     // (sort value, id) past the cursor, values only
+        AFTER_NULL,      // Null sort values with the id past the cursor
+        NULL_VALUES,     // All null sort values, continues an ascending page
+        NON_NULL_VALUES  // All non-null sort values, continues a descending page
+    }
+
+    private final String querySql;
+    private final String countSql;
+    private final String actualRecordCountSql;
+    private final String estimateSql;
+    private final String tableName;
+    private final String sortColumn;
+    private final List<Field> fields;
+    private final RecordRowMapper rowMapper;
+    private final boolean bindsSourceRecordId;
+    private final List<IndexedBinder> binders;
+
+    public RecordQueryPlan(String querySql, String countSql, String actualRecordCountSql, String estimateSql,
+                           String tableName, String sortColumn,
+                           List<Field> fields, boolean hasLinkId, boolean hasSearchRank, boolean bindsSourceRecordId,
+                           List<IndexedBinder> binders) {
+        this.querySql = querySql;
+        this.countSql = countSql;
+        this.actualRecordCountSql = actualRecordCountSql;
+        this.estimateSql = estimateSql;
+        this.tableName = tableName;
+        this.sortColumn = sortColumn;
+        this.fields = List.copyOf(fields);
+        this.rowMapper = RecordRowMapper.forSearchResults(fields, hasLinkId, hasSearchRank);
+        this.bindsSourceRecordId = bindsSourceRecordId;
+        this.binders = List.copyOf(binders);
+    }
+
+    /**
+     * Binds the join and search values of a request. The returned list is the full parameter
+     * list of {@link #getCountSql()}; cursor and limit values follow it in {@link #getQuerySql()}.
+     */
+    public List<Object> bindFilterParameters(UUID sourceRecordId, List<SearchParameter> searchParameters) {
+        List<Object> parameters = new ArrayList<>(binders.size() + 4);
+        if (bindsSourceRecordId) {
+            parameters.add(sourceRecordId);
+        }
+        for (IndexedBinder indexedBinder : binders) {
+            indexedBinder.binder().bind(searchParameters.get(indexedBinder.searchParameterIndex()), parameters);
+        }
+        return parameters;
+    }
+}
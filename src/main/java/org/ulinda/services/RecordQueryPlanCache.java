@@ -0,0 +1,123 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.ulinda.dto.QueryPlanCacheStatsDto;
+import org.ulinda.dto.SearchFieldIdentifier;
+import org.ulinda.dto.SearchType;
+import org.ulinda.enums.CacheInvalidationType;
+import org.ulinda.enums.QueryType;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of compiled record search queries, keyed by the query shape and the schema version of the model.
+ * Schema changes bump the version of a model so plans compiled against the old field list are never reused.
+ */
+@Service
+@Slf4j
+public class RecordQueryPlanCache {
+
+    /**
+     * The parts of a search parameter that decide the generated SQL. Values are bound later and are not part of it.
+     */
+    public record SearchShape(SearchFieldIdentifier identifier, UUID fieldId, SearchType searchType, int variant) {
+    }
+
+    public record Key(UUID modelId, long schemaVersion, UUID sourceModelId, UUID modelLinkId, QueryType queryType,
+                      String sortField, String sortOrder, RecordQueryPlan.KeysetBound keysetBound,
+                      List<SearchShape> searchShapes) {
+
+        public Key withKeysetBound(RecordQueryPlan.KeysetBound bound) {
+            return new Key(modelId, schemaVersion, sourceModelId, modelLinkId, queryType, sortField, sortOrder, bound, searchShapes);
+        }
+    }
+
+    @Value("${ulinda.query-plan-cache.max-size:2000}")
+    private int maxSize;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    private final ConcurrentHashMap<Key, RecordQueryPlan> plans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, AtomicLong> schemaVersions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    void registerInvalidation() {
+        cacheInvalidationBus.register(CacheInvalidationType.QUERY_PLANS, modelId -> {
+            if (modelId != null) {
+                bumpVersion(modelId);
+            } else {
+                schemaVersions.values().forEach(AtomicLong::incrementAndGet);
+                plans.clear();
+            }
+        });
+    }
+
+    public long getSchemaVersion(UUID modelId) {
+        return schemaVersions.computeIfAbsent(modelId, id -> new AtomicLong()).get();
+    }
+
+    /**
+     * Returns the cached plan for the key, or null when it has to be compiled and {@link #put(Key, RecordQueryPlan) put}.
+     */
+    public RecordQueryPlan get(Key key) {
+        RecordQueryPlan plan = plans.get(key);
+        if (plan != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return plan;
+    }
+
+    public void put(Key key, RecordQueryPlan plan) {
+        if (plans.size() >= maxSize) {
+            log.debug("Record query plan cache reached {} entries, clearing", maxSize);
+            plans.clear();
+        }
+        plans.put(key, plan);
+    }
+
+    /**
+     * Invalidates all plans that read from the model's records table. When called inside a transaction the
+     * version is bumped again after commit, so a plan compiled against uncommitted DDL is never kept.
+     */
+    public void invalidateModel(UUID modelId) {
+        bumpVersion(modelId);
+        cacheInvalidationBus.publish(CacheInvalidationType.QUERY_PLANS, modelId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpVersion(modelId);
+                }
+            });
+        }
+    }
+
+    private void bumpVersion(UUID modelId) {
+        schemaVersions.computeIfAbsent(modelId, id -> new AtomicLong()).incrementAndGet();
+        plans.keySet().removeIf(key -> modelId.equals(key.modelId()) || modelId.equals(key.sourceModelId()));
+    }
+
+    public QueryPlanCacheStatsDto getStats() {
+        QueryPlanCacheStatsDto stats = new QueryPlanCacheStatsDto();
+        stats.setHits(hits.sum());
+        stats.setMisses(misses.sum());
+        stats.setSize(plans.size());
+        stats.setMaxSize(maxSize);
+        return stats;
+    }
+}
@@ -0,0 +1,124 @@
+package org.ulinda.services;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.ulinda.dto.RecordDto;
+import org.ulinda.entities.Field;
+import org.ulinda.enums.FieldType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Maps a records table row to a {@link RecordDto}, reading the columns by position with typed getters.
+ * Expects the columns id, created_at, updated_at, optionally the link id, then one column per field in field order
+ * and optionally the search rank.
+ */
+public class RecordRowMapper implements RowMapper<RecordDto> {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int SEARCH_RESULT_TEXT_LENGTH = 30;
+
+    private final UUID[] fieldIds;
+    private final FieldType[] fieldTypes;
+    private final boolean hasLinkId;
+    private final boolean hasSearchRank;
+    private final boolean searchResult;
+    private final int firstFieldColumn;
+
+    private RecordRowMapper(List<Field> fields, boolean hasLinkId, boolean hasSearchRank, boolean searchResult) {
+        this.fieldIds = new UUID[fields.size()];
+        this.fieldTypes = new FieldType[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            fieldIds[i] = fields.get(i).getId();
+            fieldTypes[i] = fields.get(i).getType();
+        }
+        this.hasLinkId = hasLinkId;
+        this.hasSearchRank = hasSearchRank;
+        this.searchResult = searchResult;
+        this.firstFieldColumn = hasLinkId ? 5 : 4;
+    }
+
+    /**
+     * Mapper for search result rows: null values are kept and multi-line text is shortened to a single line preview.
+     * With hasSearchRank the full text search rank follows the field columns.
+     */
+    public static RecordRowMapper forSearchResults(List<Field> fields, boolean hasLinkId, boolean hasSearchRank) {
+        return new RecordRowMapper(fields, hasLinkId, hasSearchRank, true);
+    }
+
+    /**
+     * Mapper for a single record: full values, fields without a value are left out.
+     */
+    public static RecordRowMapper forRecord(List<Field> fields) {
+        return new RecordRowMapper(fields, false, false, false);
+    }
+
+    @Override
+    public RecordDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+        RecordDto recordDto = new RecordDto();
+        recordDto.setId(rs.getObject(1, UUID.class));
+        Timestamp createdAt = rs.getTimestamp(2);
+        if (createdAt != null) {
+            recordDto.setCreatedAt(createdAt.toInstant());
+        }
+        Timestamp updatedAt = rs.getTimestamp(3);
+        if (updatedAt != null) {
+            recordDto.setUpdatedAt(updatedAt.toInstant());
+        }
+        if (hasLinkId) {
+            recordDto.setLinkId(rs.getObject(4, UUID.class));
+        }
+
+        Map<UUID, Object> fieldValues = new HashMap<>((int) (fieldIds.length / 0.75f) + 1);
+        for (int i = 0; i < fieldIds.length; i++) {
+            Object value = readValue(rs, firstFieldColumn + i, fieldTypes[i]);
+            if (value != null || searchResult) {
+                fieldValues.put(fieldIds[i], value);
+            }
+        }
+        recordDto.setFieldValues(fieldValues);
+        if (hasSearchRank) {
+            float searchRank = rs.getFloat(firstFieldColumn + fieldIds.length);
+            recordDto.setSearchRank(rs.wasNull() ? null : searchRank);
+        }
+        return recordDto;
+    }
+
+    private Object readValue(ResultSet rs, int column, FieldType fieldType) throws SQLException {
+        return switch (fieldType) {
+            case EMAIL, SINGLE_LINE_TEXT, DATE -> rs.getString(column);
+            case MULTI_LINE_TEXT -> {
+                String text = rs.getString(column);
+                yield searchResult && text != null ? toPreview(text) : text;
+            }
+            case DECIMAL -> rs.getBigDecimal(column);
+            case LONG -> {
+                long value = rs.getLong(column);
+                yield rs.wasNull() ? null : value;
+            }
+            case BOOLEAN -> {
+                boolean value = rs.getBoolean(column);
+                yield rs.wasNull() ? null : value;
+            }
+            case DATETIME -> {
+                Timestamp value = rs.getTimestamp(column);
+                yield value != null ? value.toInstant() : null;
+            }
+        };
+    }
+
+    private String toPreview(String text) {
+        // Replace all whitespace (including newlines, tabs, multiple spaces) with single space
+        String preview = WHITESPACE.matcher(text).replaceAll(" ").trim();
+        if (preview.length() > SEARCH_RESULT_TEXT_LENGTH) {
+            return preview.substring(0, SEARCH_RESULT_TEXT_LENGTH) + "...";
+        }
+        return preview;
+    }
+}
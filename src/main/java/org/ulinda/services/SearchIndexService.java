@@ -0,0 +1,247 @@
+package org.ulinda.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.ulinda.dto.FieldDto;
+import org.ulinda.dto.GlobalSearchModelHits;
+import org.ulinda.dto.GlobalSearchResponse;
+import org.ulinda.dto.RecordDto;
+import org.ulinda.entities.Field;
+import org.ulinda.enums.FieldType;
+import org.ulinda.exceptions.FrontendException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Maintains search_index, one row per record of every model with the tsvector of the record's text fields, so
+ * a search across all models is a single GIN index lookup instead of one search per records table, and the
+ * records tables need no search column. Rows are written in the transaction that changes the record;
+ * {@link #backfillModel(UUID)} fills in records that are missing and refreshes documents after a text field
+ * is dropped or copied.
+ */
+@Service
+@Slf4j
+public class SearchIndexService {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ModelMetadataCache modelMetadataCache;
+
+    @Autowired
+    @Qualifier("indexBuildExecutor")
+    private Executor indexBuildExecutor;
+
+    @Value("${ulinda.full-text.config:simple}")
+    private String fullTextConfig;
+
+    @Value("${ulinda.search-index.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+
+    @Value("${ulinda.search.max-hits-per-model:50}")
+    private int maxHitsPerModel;
+
+    @Value("${ulinda.search.max-candidates:10000}")
+    private int maxCandidates;
+
+    /**
+     * Indexes the text fields of the record, in the caller's transaction.
+     */
+    public void indexRecord(UUID modelId, UUID recordId) {
+        jdbcTemplate.update("INSERT INTO search_index (model_id, record_id, document) " +
+                "SELECT ?, id, " + getDocumentExpression(modelId) + " FROM " + getTableName(modelId) + " WHERE id = ? " +
+                "ON CONFLICT (model_id, record_id) DO UPDATE SET document = EXCLUDED.document", modelId, recordId);
+    }
+
+    public void removeRecord(UUID modelId, UUID recordId) {
+        jdbcTemplate.update("DELETE FROM search_index WHERE model_id = ? AND record_id = ?", modelId, recordId);
+    }
+
+    /**
+     * Schedules {@link #backfillModel(UUID)} after the caller's transaction commits, for schema changes that
+     * change the documents of existing records. The records table is not touched, so the change itself only
+     * changes the catalog.
+     */
+    public void scheduleRefresh(UUID modelId) {
+        Runnable refresh = () -> indexBuildExecutor.execute(() -> {
+            try {
+                backfillModel(modelId);
+            } catch (Exception e) {
+                log.error("Failed to refresh the search index of model {}", modelId, e);
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh.run();
+                }
+            });
+        } else {
+            refresh.run();
+        }
+    }
+
+    public void deleteModel(UUID modelId) {
+        jdbcTemplate.update("DELETE FROM search_index WHERE model_id = ?", modelId);
+    }
+
+    /**
+     * Adds the records of a model that are not in the index yet, updates documents that differ from the
+     * records, and removes entries of records that no longer exist. Runs in batches in id order, each batch in
+     * its own short transaction.
+     */
+    public void backfillModel(UUID modelId) {
+        String tableName = getTableName(modelId);
+        String batchSql = "WITH batch AS (SELECT id, " + getDocumentExpression(modelId) + " AS document FROM " + tableName +
+                " WHERE id > ? ORDER BY id LIMIT ?), " +
+                "upserted AS (INSERT INTO search_index (model_id, record_id, document) SELECT ?, id, document FROM batch " +
+                "ON CONFLICT (model_id, record_id) DO UPDATE SET document = EXCLUDED.document " +
+                "WHERE search_index.document IS DISTINCT FROM EXCLUDED.document) " +
+                "SELECT id FROM batch ORDER BY id DESC LIMIT 1";
+        UUID lastId = MIN_UUID;
+        while (true) {
+            List<UUID> last = jdbcTemplate.queryForList(batchSql, UUID.class, lastId, backfillBatchSize, modelId);
+            if (last.isEmpty()) {
+                break;
+            }
+            lastId = last.get(0);
+        }
+        int removed = jdbcTemplate.update("DELETE FROM search_index s WHERE s.model_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM " + tableName + " r WHERE r.id = s.record_id)", modelId);
+        if (removed > 0) {
+            log.info("Removed {} stale search index entries of model {}", removed, modelId);
+        }
+    }
+
+    /**
+     * Searches the records of all models the user can view. The permission filter runs in the query, so hits
+     * on other models are never loaded. Returns at most hitsPerModel records per model, the models with the
+     * best match first.
+     * <p>
+     * Only the first maxCandidates matches found in the index are ranked, so a very common term costs at most
+     * that many rank computations; the hits are then the best of those candidates rather than of all matches.
+     * The hits are loaded with one query per model that has any, on top of the search query: the records
+     * tables have different columns, so they cannot be read in one statement.
+     */
+    @Transactional(readOnly = true)
+    public GlobalSearchResponse search(UUID userId, String query, int hitsPerModel) {
+        if (query == null || query.isBlank()) {
+            throw new FrontendException("Search text is required", true);
+        }
+        if (hitsPerModel < 1 || hitsPerModel > maxHitsPerModel) {
+            throw new FrontendException("Hits per model must be between 1 and " + maxHitsPerModel, true);
+        }
+
+        String sql = "WITH q AS (SELECT websearch_to_tsquery('" + getFullTextConfig() + "', ?) AS query), " +
+                "candidates AS (SELECT s.model_id, s.record_id, s.document FROM search_index s CROSS JOIN q WHERE s.document @@ q.query " +
+                "AND (EXISTS (SELECT 1 FROM users u WHERE u.id = ? AND u.is_admin_user) " +
+                "OR s.model_id IN (SELECT p.model_id FROM user_model_permissions p WHERE p.user_id = ? AND p.permission = 'VIEW_RECORDS')) " +
+                "LIMIT ?), " +
+                "ranked AS (SELECT c.model_id, c.record_id, ts_rank(c.document, q.query) AS search_rank FROM candidates c CROSS JOIN q), " +
+                "hits AS (SELECT model_id, record_id, search_rank, " +
+                "row_number() OVER (PARTITION BY model_id ORDER BY search_rank DESC, record_id) AS model_position FROM ranked) " +
+                "SELECT h.model_id, m.name, h.record_id, h.search_rank FROM hits h JOIN models m ON m.id = h.model_id " +
+                "WHERE h.model_position <= ? " +
+                "ORDER BY max(h.search_rank) OVER (PARTITION BY h.model_id) DESC, h.model_id, h.model_position";
+
+        Map<UUID, GlobalSearchModelHits> hitsByModel = new LinkedHashMap<>();
+        Map<UUID, Map<UUID, Float>> ranksByModel = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            UUID modelId = rs.getObject(1, UUID.class);
+            GlobalSearchModelHits modelHits = hitsByModel.computeIfAbsent(modelId, id -> {
+                GlobalSearchModelHits hits = new GlobalSearchModelHits();
+                hits.setModelId(id);
+                return hits;
+            });
+            modelHits.setModelName(rs.getString(2));
+            ranksByModel.computeIfAbsent(modelId, id -> new LinkedHashMap<>()).put(rs.getObject(3, UUID.class), rs.getFloat(4));
+        }, query, userId, userId, maxCandidates, hitsPerModel);
+
+        GlobalSearchResponse response = new GlobalSearchResponse();
+        for (GlobalSearchModelHits modelHits : hitsByModel.values()) {
+            loadRecords(modelHits, ranksByModel.get(modelHits.getModelId()));
+            response.getModels().add(modelHits);
+        }
+        return response;
+    }
+
+    private void loadRecords(GlobalSearchModelHits modelHits, Map<UUID, Float> ranks) {
+        List<Field> fields = modelMetadataCache.getFields(modelHits.getModelId());
+        StringBuilder sql = new StringBuilder("SELECT id, created_at, updated_at");
+        for (Field field : fields) {
+            sql.append(", field_").append(field.getId().toString().replace("-", "_"));
+            FieldDto fieldDto = new FieldDto();
+            fieldDto.setId(field.getId());
+            fieldDto.setDescription(field.getDescription());
+            fieldDto.setName(field.getName());
+            fieldDto.setType(field.getType());
+            fieldDto.setIsRequired(field.getIsRequired());
+            fieldDto.setIsIndexed(field.getIsIndexed());
+            modelHits.getFields().add(fieldDto);
+        }
+        sql.append(" FROM ").append(getTableName(modelHits.getModelId()))
+                .append(" WHERE id IN (").append(String.join(", ", Collections.nCopies(ranks.size(), "?"))).append(")");
+
+        Map<UUID, RecordDto> records = new HashMap<>();
+        for (RecordDto record : jdbcTemplate.query(sql.toString(), RecordRowMapper.forSearchResults(fields, false, false),
+                ranks.keySet().toArray())) {
+            records.put(record.getId(), record);
+        }
+        // Keep the rank order; records deleted since they were indexed are skipped
+        List<RecordDto> ordered = new ArrayList<>(ranks.size());
+        for (Map.Entry<UUID, Float> rank : ranks.entrySet()) {
+            RecordDto record = records.get(rank.getKey());
+            if (record != null) {
+                record.setSearchRank(rank.getValue());
+                ordered.add(record);
+            }
+        }
+        modelHits.setRecords(ordered);
+    }
+
+    /**
+     * Returns the tsvector of the model's text fields for a row of its records table, null values counted as
+     * empty. Built from the current fields, so it does not depend on any column besides the field columns.
+     */
+    String getDocumentExpression(UUID modelId) {
+        List<String> textColumns = new ArrayList<>();
+        for (Field field : modelMetadataCache.getFields(modelId)) {
+            if (isTextField(field.getType())) {
+                textColumns.add("coalesce(field_" + field.getId().toString().replace("-", "_") + ", '')");
+            }
+        }
+        String document = textColumns.isEmpty() ? "''" : String.join(" || ' ' || ", textColumns);
+        return "to_tsvector('" + getFullTextConfig() + "'::regconfig, " + document + ")";
+    }
+
+    private static boolean isTextField(FieldType fieldType) {
+        return fieldType == FieldType.SINGLE_LINE_TEXT || fieldType == FieldType.MULTI_LINE_TEXT || fieldType == FieldType.EMAIL;
+    }
+
+    private String getTableName(UUID modelId) {
+        return "records_" + modelId.toString().replace("-", "_");
+    }
+
+    private String getFullTextConfig() {
+        // Inlined into SQL, so only a plain configuration name is accepted
+        return fullTextConfig.replaceAll("[^a-zA-Z0-9_]", "");
+    }
+}
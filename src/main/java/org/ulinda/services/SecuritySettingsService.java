@@ -1,13 +1,19 @@
 package org.ulinda.services;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.ulinda.dto.PasswordSettings;
 import org.ulinda.dto.SecuritySettingsDto;
 import org.ulinda.entities.SecuritySettings;
+import org.ulinda.enums.CacheInvalidationType;
 import org.ulinda.repositories.SecuritySettingsRepository;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 public class SecuritySettingsService {
 
@@ -17,13 +23,59 @@ public class SecuritySettingsService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    // The settings are read on every login and session check, and rarely change
+    private final AtomicLong version = new AtomicLong();
+    private volatile SecuritySettings cachedSettings;
+
+    @PostConstruct
+    void registerInvalidation() {
+        cacheInvalidationBus.register(CacheInvalidationType.SECURITY_SETTINGS, id -> evict());
+    }
+
+    /**
+     * Returns the settings, loaded once and kept until they are updated. The instance is shared and must not be
+     * modified.
+     */
+    private SecuritySettings getCachedSettings() {
+        SecuritySettings securitySettings = cachedSettings;
+        if (securitySettings == null) {
+            long loadVersion = version.get();
+            securitySettings = securitySettingsRepository.findById(1).orElseThrow(()->new RuntimeException("SecuritySettings not found"));
+            if (version.get() == loadVersion) {
+                cachedSettings = securitySettings;
+            }
+        }
+        return securitySettings;
+    }
+
+    private void invalidate() {
+        evict();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict();
+                }
+            });
+        }
+        cacheInvalidationBus.publish(CacheInvalidationType.SECURITY_SETTINGS, null);
+    }
+
+    private void evict() {
+        version.incrementAndGet();
+        cachedSettings = null;
+    }
+
     public int getSessionTimeoutMinutes() {
-        SecuritySettings securitySettings = securitySettingsRepository.findById(1).orElseThrow(()->new RuntimeException("SecuritySettings not found"));
+        SecuritySettings securitySettings = getCachedSettings();
         return securitySettings.getSessionTimeoutMinutes();
     }
 
     public SecuritySettingsDto getSecuritySettings() {
-        SecuritySettings securitySettings = securitySettingsRepository.findById(1).orElseThrow(()->new RuntimeException("SecuritySettings not found"));
+        SecuritySettings securitySettings = getCachedSettings();
         SecuritySettingsDto securitySettingsDto = new SecuritySettingsDto();
         securitySettingsDto.setId(securitySettings.getId());
         securitySettingsDto.setSessionTimeoutMinutes(securitySettings.getSessionTimeoutMinutes());
@@ -51,7 +103,7 @@ public class SecuritySettingsService {
     }
 
     public PasswordSettings getPasswordSettings() {
-        SecuritySettings securitySettings = securitySettingsRepository.findById(1).orElseThrow(()->new RuntimeException("SecuritySettings not found"));
+        SecuritySettings securitySettings = getCachedSettings();
         PasswordSettings passwordSettings = new PasswordSettings();
         passwordSettings.setMinimumPasswordLength(securitySettings.getMinimumPasswordLength());
         passwordSettings.setPasswordRequiresUppercaseLetters(securitySettings.getPasswordRequiresUppercaseLetters());
@@ -93,6 +145,7 @@ public class SecuritySettingsService {
         securitySettings.setShowPasswordRequirmentsOnForm(securitySettingsDto.getShowPasswordRequirmentsOnForm());
         securitySettings.setAllowShowPasswordToggle(securitySettingsDto.getAllowShowPasswordToggle());
         securitySettingsRepository.save(securitySettings);
+        invalidate();
     }
 
     public void saveNewSecuritySettings() {
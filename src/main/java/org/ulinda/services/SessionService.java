@@ -1,27 +1,101 @@
 package org.ulinda.services;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.ulinda.entities.Session;
 import org.ulinda.repositories.SessionRepository;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
+@Slf4j
 public class SessionService {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
     @Autowired
     private SessionRepository sessionRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Stored last access times are only moved forward by at least this much
+    @Value("${ulinda.session.last-access-granularity-seconds:60}")
+    private long lastAccessGranularitySeconds;
+
+    // Last access times not written yet, by session id
+    private final Map<UUID, Instant> pendingLastAccesses = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the user of a session and records the access in memory. The stored last access time is moved
+     * forward by the next {@link #flushLastAccesses()}, and only when it is older than the granularity, so
+     * requests do not write.
+     */
     public UUID validateSessionId(UUID sessionId) {
         Session session = sessionRepository.findById(sessionId).orElseThrow(()->new IllegalArgumentException("Invalid session Id"));
-        session.setLastAccessed(Instant.now());
-        sessionRepository.save(session);
+        Instant now = Instant.now();
+        if (Duration.between(session.getLastAccessed(), now).getSeconds() >= lastAccessGranularitySeconds) {
+            pendingLastAccesses.merge(sessionId, now, (previous, current) -> current.isAfter(previous) ? current : previous);
+        }
         return session.getUserId();
     }
 
+    /**
+     * Writes the recorded last access times in batched updates. A stored time is never moved back.
+     */
+    public void flushLastAccesses() {
+        if (pendingLastAccesses.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<UUID, Instant> entry : pendingLastAccesses.entrySet()) {
+            // Keeps an access recorded while flushing for the next flush
+            if (pendingLastAccesses.remove(entry.getKey(), entry.getValue())) {
+                batch.add(new Object[]{entry.getKey(), Timestamp.from(entry.getValue())});
+            }
+            if (batch.size() == FLUSH_BATCH_SIZE) {
+                updateLastAccesses(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updateLastAccesses(batch);
+        }
+    }
+
+    private void updateLastAccesses(List<Object[]> batch) {
+        StringBuilder sql = new StringBuilder("UPDATE sessions s SET last_accessed = v.last_accessed FROM (VALUES ");
+        List<Object> params = new ArrayList<>(batch.size() * 2);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append("(?::uuid, ?::timestamptz)");
+            params.add(batch.get(i)[0]);
+            params.add(batch.get(i)[1]);
+        }
+        sql.append(") AS v(id, last_accessed) WHERE s.id = v.id AND s.last_accessed < v.last_accessed");
+        try {
+            int updated = jdbcTemplate.update(sql.toString(), params.toArray());
+            log.debug("Updated last access time of {} of {} sessions", updated, batch.size());
+        } catch (RuntimeException e) {
+            // Kept for the next flush
+            for (Object[] row : batch) {
+                pendingLastAccesses.merge((UUID) row[0], ((Timestamp) row[1]).toInstant(),
+                        (previous, current) -> current.isAfter(previous) ? current : previous);
+            }
+            throw e;
+        }
+    }
+
     public UUID createSession(UUID userId, String ipAddress) {
         Session session = new Session();
         session.setUserId(userId);
@@ -36,6 +110,7 @@ public class SessionService {
     public void invalidateSession(UUID sessionId) {
         sessionRepository.findById(sessionId).orElseThrow(()->new IllegalArgumentException("Invalid session Id"));
         sessionRepository.deleteById(sessionId);
+        pendingLastAccesses.remove(sessionId);
     }
 
     public void deleteSessionsForUser(UUID userId) {
@@ -46,8 +121,24 @@ public class SessionService {
         return sessionRepository.findAll();
     }
 
+    /**
+     * Deletes the sessions not accessed within the timeout, in batches of at most batchSize rows so no statement
+     * holds locks for long. Sessions locked by a concurrent delete are skipped. Returns the number deleted.
+     */
+    public int deleteExpiredSessions(int timeoutMinutes, int batchSize) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM sessions WHERE id IN (SELECT id FROM sessions " +
+                    "WHERE last_accessed < now() - make_interval(mins => ?) LIMIT ? FOR UPDATE SKIP LOCKED)", timeoutMinutes, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
     @Transactional
     public void deleteSession(UUID sessionId) {
         sessionRepository.deleteById(sessionId);
+        pendingLastAccesses.remove(sessionId);
     }
 }
@@ -24,9 +24,18 @@ public class StartupService {
     @Autowired
     private DemoDataService demoDataService;
 
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private ModelMetadataCache modelMetadataCache;
+
     @Autowired
     private SecuritySettingsService securitySettingsService;
 
+    @Autowired
+    private ErrorLogPartitionService errorLogPartitionService;
+
     private AtomicBoolean isNew =  new AtomicBoolean(false);
 
     private boolean tableExists(String tableName) {
@@ -94,6 +103,7 @@ public class StartupService {
                         description TEXT,
                         type TEXT NOT NULL,
                         is_required BOOLEAN NOT NULL,
+                        is_indexed BOOLEAN NOT NULL DEFAULT false,
                         created_at TIMESTAMP WITH TIME ZONE NOT NULL,
                         updated_at TIMESTAMP WITH TIME ZONE NOT NULL
                     );
@@ -104,15 +114,91 @@ public class StartupService {
     }
 
     private void createErrorLogTable() {
+        errorLogPartitionService.createPartitionedTable();
+    }
+
+    private void createErrorFingerprintsTable() {
+        String createSql = """
+            CREATE TABLE error_fingerprints (
+                fingerprint TEXT PRIMARY KEY,
+                exception_type TEXT NOT NULL,
+                error_code TEXT,
+                message TEXT,
+                stack_trace BYTEA,
+                occurrences BIGINT NOT NULL,
+                first_seen TIMESTAMP WITH TIME ZONE NOT NULL,
+                last_seen TIMESTAMP WITH TIME ZONE NOT NULL,
+                sample_identifiers UUID[] NOT NULL DEFAULT '{}'
+            );
+            CREATE INDEX idx_error_fingerprints_last_seen ON error_fingerprints (last_seen DESC);
+        """;
+        jdbcTemplate.execute(createSql);
+    }
+
+    private void createModelStatsTable() {
+        String createSql = """
+            CREATE TABLE model_stats (
+                scope_id UUID NOT NULL,
+                slot INT NOT NULL,
+                row_count BIGINT NOT NULL DEFAULT 0,
+                PRIMARY KEY (scope_id, slot)
+            );
+        """;
+        jdbcTemplate.execute(createSql);
+    }
+
+    private void createScheduledJobsTable() {
         String createSql = """
-            CREATE TABLE error_logs (
-                                       id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
-                                       error_identifier UUID NOT NULL,
-                                       timestamp TIMESTAMPTZ NOT NULL,
-                                       message TEXT,
-                                       stack_trace TEXT,
-                                       error_code TEXT
-                                   );
+            CREATE TABLE scheduled_jobs (
+                job_name TEXT PRIMARY KEY,
+                node_id TEXT NOT NULL,
+                last_started_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                last_finished_at TIMESTAMP WITH TIME ZONE,
+                last_duration_ms BIGINT,
+                last_outcome TEXT NOT NULL,
+                last_error TEXT,
+                run_count BIGINT NOT NULL DEFAULT 0,
+                failure_count BIGINT NOT NULL DEFAULT 0,
+                last_processed BIGINT,
+                total_processed BIGINT NOT NULL DEFAULT 0
+            );
+        """;
+        jdbcTemplate.execute(createSql);
+    }
+
+    private void createClusterSettingsTable() {
+        String createSql = """
+            CREATE TABLE cluster_settings (
+                name TEXT PRIMARY KEY,
+                value TEXT NOT NULL
+            );
+        """;
+        jdbcTemplate.execute(createSql);
+    }
+
+    private void createSearchIndexTable() {
+        String createSql = """
+            CREATE TABLE search_index (
+                model_id UUID NOT NULL,
+                record_id UUID NOT NULL,
+                document tsvector NOT NULL,
+                PRIMARY KEY (model_id, record_id)
+            );
+        """;
+        jdbcTemplate.execute(createSql);
+        jdbcTemplate.execute("CREATE INDEX idx_search_index_document ON search_index USING gin (document)");
+    }
+
+    private void createIndexAdvisorUsageTable() {
+        String createSql = """
+            CREATE TABLE index_advisor_usage (
+                model_id UUID NOT NULL,
+                field_id UUID NOT NULL,
+                usage TEXT NOT NULL,
+                query_count BIGINT NOT NULL DEFAULT 0,
+                total_nanos BIGINT NOT NULL DEFAULT 0,
+                PRIMARY KEY (field_id, usage)
+            );
         """;
         jdbcTemplate.execute(createSql);
     }
@@ -236,6 +322,12 @@ public class StartupService {
             DROP TABLE IF EXISTS security_settings;
             DROP TABLE IF EXISTS users;
             DROP TABLE IF EXISTS error_logs;
+            DROP TABLE IF EXISTS model_stats;
+            DROP TABLE IF EXISTS error_fingerprints;
+            DROP TABLE IF EXISTS scheduled_jobs;
+            DROP TABLE IF EXISTS search_index;
+            DROP TABLE IF EXISTS cluster_settings;
+            DROP TABLE IF EXISTS index_advisor_usage;
         """;
         jdbcTemplate.execute(deleteSql);
     }
@@ -331,6 +423,11 @@ public class StartupService {
     @Transactional
     public void runStartup() {
         //deleteTables();
+        // Shared keys and parameters are read from it on first use, so it comes first
+        if (!tableExists("cluster_settings")) {
+            createClusterSettingsTable();
+            log.info("Cluster settings table created successfully");
+        }
         log.info("Checking if users table exists");
         if (!tableExists("users")) {
             isNew.set(true);
@@ -364,6 +461,33 @@ public class StartupService {
         } else {
             log.info("Users table already exists");
         }
+        // Added after the first release
+        jdbcTemplate.execute("ALTER TABLE fields ADD COLUMN IF NOT EXISTS is_indexed BOOLEAN NOT NULL DEFAULT false");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_sessions_last_accessed ON sessions (last_accessed)");
+        jdbcTemplate.execute("ALTER TABLE error_logs ADD COLUMN IF NOT EXISTS fingerprint TEXT");
+        errorLogPartitionService.ensurePartitionedTable();
+        errorLogPartitionService.createPartitions();
+        if (!tableExists("error_fingerprints")) {
+            createErrorFingerprintsTable();
+            log.info("Error fingerprints table created successfully");
+        }
+        if (!tableExists("model_stats")) {
+            createModelStatsTable();
+            log.info("Model stats table created successfully");
+        }
+        if (!tableExists("scheduled_jobs")) {
+            createScheduledJobsTable();
+            log.info("Scheduled jobs table created successfully");
+        }
+        if (!tableExists("search_index")) {
+            createSearchIndexTable();
+            log.info("Search index table created successfully");
+        }
+        if (!tableExists("index_advisor_usage")) {
+            createIndexAdvisorUsageTable();
+            log.info("Index advisor usage table created successfully");
+        }
+        modelService.ensureSortIndexes();
     }
 
     public void loadDemoData() {
@@ -372,4 +496,8 @@ public class StartupService {
         }
         //log.info("Loaded Demo Data");
     }
+
+    public void loadMetadata() {
+        modelMetadataCache.warmUp();
+    }
 }
@@ -4,7 +4,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.ulinda.dto.*;
@@ -34,7 +33,10 @@ public class TokenService {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private ApiTokenCache apiTokenCache;
 
     private static final String TOKEN_PREFIX = "uli_";
     private static final int TOKEN_LENGTH = 40; // 40 random characters
@@ -66,7 +68,7 @@ public class TokenService {
         String token = generateRandomToken();
 
         // Hash the token for secure storage
-        String tokenHash = passwordEncoder.encode(token);
+        String tokenHash = passwordHashingService.encodeToken(token);
 
         // Extract prefix for lookup and display (first 14 chars: "uli_" + 10 more)
         String tokenPrefix = token.substring(0, Math.min(TOKEN_PREFIX_LENGTH, token.length()));
@@ -120,6 +122,7 @@ public class TokenService {
         }
 
         currentUserTokenRepository.delete(token);
+        apiTokenCache.invalidateToken(tokenId);
         log.info("Deleted token {} for user: {}", tokenId, userId);
     }
 
@@ -144,6 +147,7 @@ public class TokenService {
                 .orElseThrow(() -> new RuntimeException("Token not found"));
 
         currentUserTokenRepository.delete(token);
+        apiTokenCache.invalidateToken(tokenId);
         log.info("Admin deleted token {} for user: {}", tokenId, token.getUserId());
     }
 
@@ -0,0 +1,207 @@
+package org.ulinda.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.ulinda.dto.PermissionCacheStatsDto;
+import org.ulinda.enums.CacheInvalidationType;
+import org.ulinda.enums.ModelPermission;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Per-user snapshot of the admin flag and the model permissions, loaded with one query and kept until the
+ * user's permissions change. Invalidation bumps a generation, so a snapshot loaded while a change commits is
+ * not kept.
+ */
+@Service
+@Slf4j
+public class UserPermissionCache {
+
+    private record PermissionSnapshot(boolean adminUser, boolean accountDisabled, Map<UUID, Set<ModelPermission>> modelPermissions) {
+
+        boolean hasPermission(UUID modelId, ModelPermission permission) {
+            if (accountDisabled) {
+                return false;
+            }
+            if (adminUser) {
+                return true;
+            }
+            Set<ModelPermission> permissions = modelPermissions.get(modelId);
+            return permissions != null && permissions.contains(permission);
+        }
+
+        int permissionCount() {
+            int count = 0;
+            for (Set<ModelPermission> permissions : modelPermissions.values()) {
+                count += permissions.size();
+            }
+            return count;
+        }
+    }
+
+    private static final String REQUEST_COUNTED_ATTRIBUTE = UserPermissionCache.class.getName() + ".counted";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${ulinda.permission-cache.max-size:10000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<UUID, PermissionSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder savedQueries = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    @PostConstruct
+    void registerInvalidation() {
+        cacheInvalidationBus.register(CacheInvalidationType.USER_PERMISSIONS, userId -> {
+            if (userId != null) {
+                evict(userId);
+            } else {
+                evictAll();
+            }
+        });
+    }
+
+    public boolean hasPermission(UUID userId, UUID modelId, ModelPermission permission) {
+        return getSnapshot(userId).hasPermission(modelId, permission);
+    }
+
+    /**
+     * Returns a check of the given permission for any model, backed by a single lookup of the user's snapshot,
+     * for filtering lists of models.
+     */
+    public Predicate<UUID> getModelFilter(UUID userId, ModelPermission permission) {
+        PermissionSnapshot snapshot = getSnapshot(userId);
+        return modelId -> snapshot.hasPermission(modelId, permission);
+    }
+
+    private PermissionSnapshot getSnapshot(UUID userId) {
+        PermissionSnapshot snapshot = snapshots.get(userId);
+        if (snapshot != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            long loadGeneration = generation.get();
+            snapshot = load(userId);
+            if (generation.get() == loadGeneration) {
+                if (snapshots.size() >= maxSize) {
+                    log.debug("Permission cache reached {} entries, clearing", maxSize);
+                    snapshots.clear();
+                }
+                snapshots.put(userId, snapshot);
+            }
+        }
+        // The uncached check read the model, the user twice, the permission rows and one model per permission row
+        savedQueries.add(4 + snapshot.permissionCount());
+        countRequest();
+        return snapshot;
+    }
+
+    private void countRequest() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null && requestAttributes.getAttribute(REQUEST_COUNTED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) == null) {
+            requestAttributes.setAttribute(REQUEST_COUNTED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+            requests.increment();
+        }
+    }
+
+    private PermissionSnapshot load(UUID userId) {
+        Boolean[] flags = new Boolean[2];
+        Map<UUID, Set<ModelPermission>> modelPermissions = new HashMap<>();
+        jdbcTemplate.query("SELECT u.is_admin_user, u.account_disabled, p.model_id, p.permission FROM users u " +
+                "LEFT JOIN user_model_permissions p ON p.user_id = u.id WHERE u.id = ?", rs -> {
+            flags[0] = rs.getBoolean(1);
+            flags[1] = rs.getBoolean(2);
+            UUID modelId = rs.getObject(3, UUID.class);
+            if (modelId != null) {
+                modelPermissions.computeIfAbsent(modelId, id -> EnumSet.noneOf(ModelPermission.class))
+                        .add(ModelPermission.valueOf(rs.getString(4)));
+            }
+        }, userId);
+        if (flags[0] == null) {
+            throw new RuntimeException("User not found: " + userId);
+        }
+        return new PermissionSnapshot(flags[0], flags[1], modelPermissions);
+    }
+
+    /**
+     * Drops the user's snapshot. When called inside a transaction it is dropped again after commit; the other
+     * nodes drop theirs when the transaction commits.
+     */
+    public void invalidateUser(UUID userId) {
+        runNowAndAfterCommit(() -> evict(userId));
+        cacheInvalidationBus.publish(CacheInvalidationType.USER_PERMISSIONS, userId);
+    }
+
+    /**
+     * Drops all snapshots, for changes that affect the permissions of many users such as a deleted model.
+     */
+    public void invalidateAll() {
+        runNowAndAfterCommit(this::evictAll);
+        cacheInvalidationBus.publish(CacheInvalidationType.USER_PERMISSIONS, null);
+    }
+
+    private void evict(UUID userId) {
+        generation.incrementAndGet();
+        snapshots.remove(userId);
+    }
+
+    private void evictAll() {
+        generation.incrementAndGet();
+        snapshots.clear();
+    }
+
+    private void runNowAndAfterCommit(Runnable runnable) {
+        runnable.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        }
+    }
+
+    public PermissionCacheStatsDto getStats() {
+        PermissionCacheStatsDto stats = new PermissionCacheStatsDto();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long checks = hitCount + missCount;
+        stats.setChecks(checks);
+        stats.setHits(hitCount);
+        stats.setMisses(missCount);
+        stats.setHitRate(checks > 0 ? (double) hitCount / checks : 0);
+        // Every miss runs one query itself
+        long saved = savedQueries.sum() - missCount;
+        stats.setSavedQueries(saved);
+        long requestCount = requests.sum();
+        stats.setRequests(requestCount);
+        stats.setSavedQueriesPerRequest(requestCount > 0 ? (double) saved / requestCount : 0);
+        stats.setSize(snapshots.size());
+        stats.setMaxSize(maxSize);
+        return stats;
+    }
+}
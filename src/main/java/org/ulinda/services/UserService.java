@@ -2,7 +2,6 @@ package org.ulinda.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -14,7 +13,6 @@ import org.ulinda.entities.UserModelPermission;
 import org.ulinda.exceptions.ErrorCode;
 import org.ulinda.exceptions.FrontendException;
 import org.ulinda.repositories.CurrentUserTokenRepository;
-import org.ulinda.repositories.ModelRepository;
 import org.ulinda.repositories.UserModelPermissionRepository;
 import org.ulinda.repositories.UserRepository;
 
@@ -32,37 +30,37 @@ public class UserService {
     private String adminUserPassword;
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final PasswordService passwordService;
     private final UserModelPermissionRepository userModelPermissionRepository;
-    private final ModelRepository modelRepository;
+    private final ModelMetadataCache modelMetadataCache;
     private final CurrentUserTokenRepository currentUserTokenRepository;
     private final PasswordValidationService passwordValidationService;
     private final SessionService sessionService;
-    private final SecuritySettingsService securitySettingsService;
     private final PasswordHistoryService passwordHistoryService;
+    private final UserPermissionCache userPermissionCache;
 
     public UserService(
             UserRepository userRepository,
-            PasswordEncoder passwordEncoder,
+            PasswordHashingService passwordHashingService,
             PasswordService passwordService,
             UserModelPermissionRepository userModelPermissionRepository,
-            ModelRepository modelRepository,
+            ModelMetadataCache modelMetadataCache,
             CurrentUserTokenRepository currentUserTokenRepository,
             PasswordValidationService passwordValidationService,
             SessionService sessionService,
-            SecuritySettingsService securitySettingsService,
-            PasswordHistoryService passwordHistoryService) {
+            PasswordHistoryService passwordHistoryService,
+            UserPermissionCache userPermissionCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.passwordService = passwordService;
         this.userModelPermissionRepository = userModelPermissionRepository;
-        this.modelRepository = modelRepository;
+        this.modelMetadataCache = modelMetadataCache;
         this.currentUserTokenRepository = currentUserTokenRepository;
         this.passwordValidationService = passwordValidationService;
         this.sessionService = sessionService;
-        this.securitySettingsService = securitySettingsService;
         this.passwordHistoryService = passwordHistoryService;
+        this.userPermissionCache = userPermissionCache;
     }
 
     @Transactional
@@ -71,7 +69,7 @@ public class UserService {
             throw new RuntimeException("ULINDA_ADMIN_PASSWORD environment variable not set");
         }
         if (!userRepository.existsByUsername("admin")) {
-            String encryptedPassword = passwordEncoder.encode(adminUserPassword);
+            String encryptedPassword = passwordHashingService.encode(adminUserPassword);
             User admin = new User("admin", encryptedPassword, "Admin", "User", true, true, true, 10);
             admin.setPasswordChangedAt(Instant.now());
             userRepository.save(admin);
@@ -89,7 +87,7 @@ public class UserService {
         String username = createUserRequest.getUsername().toLowerCase();
         String password = passwordService.generatePassword();
         if (!userRepository.existsByUsername(username)) {
-            String encryptedPassword = passwordEncoder.encode(password);
+            String encryptedPassword = passwordHashingService.encode(password);
             User user = new User(username, encryptedPassword, createUserRequest.getName(), createUserRequest.getSurname(),
                     createUserRequest.isCanCreateModels(), createUserRequest.isAdminUser(),
                     createUserRequest.isCanGenerateTokens(), createUserRequest.getMaxTokenCount());
@@ -104,17 +102,10 @@ public class UserService {
         throw new FrontendException("Username already exists", ErrorCode.USER_ALREADY_EXISTS, true);
     }
 
-    @Transactional(readOnly = true)
-    public boolean validateUser(String username, String password) {
-        username = username.toLowerCase();
-        Optional<User> user = userRepository.findByUsername(username);
-        return user.isPresent() && passwordEncoder.matches(password, user.get().getPassword());
-    }
-
     @Transactional(readOnly = true)
     public boolean validatePassword(UUID userId, String password) {
         User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-        return passwordEncoder.matches(password, user.getPassword());
+        return passwordHashingService.matches(password, user.getPassword());
     }
 
     @Transactional
@@ -122,7 +113,7 @@ public class UserService {
         User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
 
         // Check if new password is the same as current password
-        if (passwordEncoder.matches(newPassword, user.getPassword())) {
+        if (passwordHashingService.matches(newPassword, user.getPassword())) {
             throw new FrontendException("New password cannot be the same as your current password.", ErrorCode.PASSWORD_REQUIREMENT_FAILED, true);
         }
 
@@ -144,7 +135,7 @@ public class UserService {
         passwordHistoryService.addPasswordToHistory(userId, oldPasswordHash);
 
         // Update to new password
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashingService.encode(newPassword));
         user.setPasswordChangedAt(Instant.now());
         userRepository.save(user);
 
@@ -169,12 +160,12 @@ public class UserService {
         }
 
         //Check old password provided
-        if (!passwordEncoder.matches(oldPassword, user.getPassword())) {
+        if (!passwordHashingService.matches(oldPassword, user.getPassword())) {
             throw new FrontendException("Old password doesn't match", ErrorCode.OLD_PASSWORD_INCORRECT, true);
         }
 
         // Check if new password is the same as current password
-        if (passwordEncoder.matches(newPassword, user.getPassword())) {
+        if (passwordHashingService.matches(newPassword, user.getPassword())) {
             throw new FrontendException("New password cannot be the same as your current password.", ErrorCode.PASSWORD_REQUIREMENT_FAILED, true);
         }
 
@@ -196,7 +187,7 @@ public class UserService {
         passwordHistoryService.addPasswordToHistory(user.getId(), oldPasswordHash);
 
         // Update to new password
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashingService.encode(newPassword));
         user.setMustChangePassword(false);
         user.setPasswordChangedAt(Instant.now());
         userRepository.save(user);
@@ -217,7 +208,7 @@ public class UserService {
         passwordHistoryService.addPasswordToHistory(uuid, oldPasswordHash);
 
         // Update to new password (randomly generated, no need to check history)
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashingService.encode(newPassword));
         user.setMustChangePassword(true);
         user.setPasswordChangedAt(Instant.now());
         userRepository.save(user);
@@ -283,7 +274,7 @@ public class UserService {
         List<UserModelPermission> permissions = userModelPermissionRepository.findByUserId(user.getId());
         List<UserModelPermissionDto> userModelPermissions = new ArrayList<>();
         for (UserModelPermission permission : permissions) {
-            Model model = modelRepository.findById(permission.getModelId()).orElseThrow(() -> new RuntimeException("Model not found: " + permission.getModelId()));
+            Model model = modelMetadataCache.getModel(permission.getModelId()).orElseThrow(() -> new RuntimeException("Model not found: " + permission.getModelId()));
             UserModelPermissionDto userModelPermissionDto = new UserModelPermissionDto();
             userModelPermissionDto.setModelName(model.getName());
             userModelPermissionDto.setModelId(model.getId());
@@ -315,6 +306,7 @@ public class UserService {
         user.setAccountDisabled(updateUserRequest.isAccountDisabled());
         userRepository.save(user);
         userModelPermissionRepository.deleteByUserId(userId);
+        userPermissionCache.invalidateUser(userId);
 
         for (UpdateUserModelPermissionDto permission : updateUserRequest.getPermissions()) {
             UserModelPermission userModelPermission = new UserModelPermission();
@@ -341,123 +333,4 @@ public class UserService {
         currentUserTokenRepository.deleteAllByUserId(userId);
     }
 
-    @Transactional
-    public boolean isAccountLocked(String username) {
-        username = username.toLowerCase();
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isEmpty()) {
-            return false;
-        }
-
-        User user = userOpt.get();
-        if (user.getAccountLockedUntil() == null) {
-            return false;
-        }
-
-        // Check if lockout period has expired
-        if (user.getAccountLockedUntil().isAfter(Instant.now())) {
-            return true;
-        }
-
-        // Lockout has expired, unlock the account
-        unlockAccount(username);
-        return false;
-    }
-
-    @Transactional
-    public void incrementFailedLoginAttempts(String username) {
-        username = username.toLowerCase();
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isEmpty()) {
-            return;
-        }
-
-        User user = userOpt.get();
-        Integer currentAttempts = user.getFailedLoginAttempts();
-        if (currentAttempts == null) {
-            currentAttempts = 0;
-        }
-        currentAttempts++;
-
-        user.setFailedLoginAttempts(currentAttempts);
-        user.setLastFailedLoginAttempt(Instant.now());
-
-        // Check if we need to lock the account
-        Integer maxAttempts = securitySettingsService.getSecuritySettings().getMaximumLoginAttempts();
-        if (maxAttempts != null && currentAttempts >= maxAttempts) {
-            lockAccount(user);
-        }
-
-        userRepository.save(user);
-    }
-
-    @Transactional
-    public void resetFailedLoginAttempts(String username) {
-        username = username.toLowerCase();
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isEmpty()) {
-            return;
-        }
-
-        User user = userOpt.get();
-        user.setFailedLoginAttempts(0);
-        user.setLastFailedLoginAttempt(null);
-        user.setAccountLockedUntil(null);
-        userRepository.save(user);
-    }
-
-    @Transactional
-    public void lockAccount(User user) {
-        Integer lockoutMinutes = securitySettingsService.getSecuritySettings().getAfterMaxAttemptsLockoutTimeMinutes();
-        if (lockoutMinutes == null) {
-            lockoutMinutes = 15; // Default 15 minutes
-        }
-
-        Instant lockUntil = Instant.now().plusSeconds(lockoutMinutes * 60L);
-        user.setAccountLockedUntil(lockUntil);
-        log.warn("Account locked for user: {} until {}", user.getUsername(), lockUntil);
-    }
-
-    @Transactional
-    public void unlockAccount(String username) {
-        username = username.toLowerCase();
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isEmpty()) {
-            return;
-        }
-
-        User user = userOpt.get();
-        user.setFailedLoginAttempts(0);
-        user.setLastFailedLoginAttempt(null);
-        user.setAccountLockedUntil(null);
-        userRepository.save(user);
-        log.info("Account unlocked for user: {}", username);
-    }
-
-    @Transactional(readOnly = true)
-    public boolean isPasswordExpired(UUID userId) {
-        SecuritySettingsDto settings = securitySettingsService.getSecuritySettings();
-
-        // If password expiration is not enabled, password never expires
-        if (!settings.getPasswordExpiration()) {
-            return false;
-        }
-
-        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-
-        // If passwordChangedAt is null (legacy users), consider it expired to force update
-        if (user.getPasswordChangedAt() == null) {
-            return true;
-        }
-
-        // Calculate password age in days
-        long daysSincePasswordChange = java.time.Duration.between(
-            user.getPasswordChangedAt(),
-            Instant.now()
-        ).toDays();
-
-        // Check if password has exceeded the expiration period
-        return daysSincePasswordChange >= settings.getPasswordExpirationDays();
-    }
-
 }
@@ -1,6 +1,5 @@
 package org.ulinda.utils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.ulinda.dto.CursorInfo;
 import org.ulinda.dto.RecordDto;
@@ -8,155 +7,125 @@ import org.ulinda.entities.Field;
 import org.ulinda.enums.FieldType;
 import org.ulinda.exceptions.FrontendException;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 /**
  * Utility class for handling cursor-based pagination.
- * Provides encoding/decoding of cursor information for proper pagination.
+ * Builds cursor information from records and converts cursor values for the keyset query;
+ * cursors are encoded by {@link org.ulinda.services.CursorCodec}.
  */
 @Slf4j
 public class CursorUtils {
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * Encodes cursor information into a Base64 string.
+     * Creates cursor info from a record and sort parameters.
      */
-    public static String encodeCursor(CursorInfo cursorInfo) {
+    public static CursorInfo createCursorFromRecord(RecordDto record, String sortField, String sortOrder, List<Field> fields) {
         try {
-            String json = objectMapper.writeValueAsString(cursorInfo);
-            return Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+            Object sortFieldValue = extractSortFieldValue(record, sortField, fields);
+            return new CursorInfo(sortFieldValue, record.getId(), sortField, sortOrder, isNullsLast(sortOrder));
         } catch (Exception e) {
-            log.error("Failed to encode cursor: {}", e.getMessage());
+            log.error("Failed to create cursor from record {}: {}", record.getId(), e.getMessage());
             return null;
         }
     }
 
     /**
-     * Decodes a Base64 cursor string back to CursorInfo.
+     * Null sort values come after all other values in ascending order and before them in descending order,
+     * which is PostgreSQL's default and lets one (column, id) index serve both directions.
      */
-    public static CursorInfo decodeCursor(String cursor) {
-        try {
-            if (cursor == null || cursor.trim().isEmpty()) {
-                return null;
-            }
-            
-            byte[] decodedBytes = Base64.getDecoder().decode(cursor);
-            String json = new String(decodedBytes, StandardCharsets.UTF_8);
-            return objectMapper.readValue(json, CursorInfo.class);
-        } catch (Exception e) {
-            log.error("Failed to decode cursor '{}': {}", cursor, e.getMessage());
-            return null;
-        }
+    public static boolean isNullsLast(String sortOrder) {
+        return !"DESC".equalsIgnoreCase(sortOrder);
     }
 
     /**
-     * Creates cursor info from a record and sort parameters.
+     * Extracts the sort field value from a record, or null when the record has no value.
      */
-    public static CursorInfo createCursorFromRecord(RecordDto record, String sortField, String sortOrder, List<Field> fields) {
-        try {
-            String sortFieldValue = extractSortFieldValue(record, sortField, fields);
-            return new CursorInfo(sortFieldValue, record.getId(), sortField, sortOrder);
-        } catch (Exception e) {
-            log.error("Failed to create cursor from record {}: {}", record.getId(), e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * Extracts the sort field value from a record as a string.
-     */
-    private static String extractSortFieldValue(RecordDto record, String sortField, List<Field> fields) {
+    private static Object extractSortFieldValue(RecordDto record, String sortField, List<Field> fields) {
         // Handle system fields
         if ("id".equals(sortField)) {
-            return record.getId().toString();
+            return record.getId();
         }
         if ("created_at".equals(sortField)) {
-            return record.getCreatedAt() != null ? record.getCreatedAt().toString() : "";
+            return record.getCreatedAt();
         }
         if ("updated_at".equals(sortField)) {
-            return record.getUpdatedAt() != null ? record.getUpdatedAt().toString() : "";
+            return record.getUpdatedAt();
+        }
+        if ("rank".equals(sortField)) {
+            return record.getSearchRank();
         }
 
         // Handle custom fields - sortField should be the field UUID
         try {
             UUID fieldId = UUID.fromString(sortField);
-            Object value = record.getFieldValues().get(fieldId);
-            return value != null ? value.toString() : "";
+            return record.getFieldValues().get(fieldId);
         } catch (IllegalArgumentException e) {
             log.warn("Invalid sort field UUID: {}", sortField);
-            return "";
+            return null;
         }
     }
 
     /**
-     * Converts a string value to the appropriate type for database comparison.
+     * Converts a cursor value to the type bound in the keyset comparison. The value has the type the row mapper
+     * reads for the sort field.
      */
-    public static Object convertCursorValueForComparison(String stringValue, String sortField, List<Field> fields) {
-        if (stringValue == null) {
+    public static Object convertCursorValueForComparison(Object value, String sortField, List<Field> fields) {
+        if (value == null) {
             throw new FrontendException("Sort value is null", true);
         }
 
-        try {
-            // Handle system fields
-            if ("id".equals(sortField)) {
-                return UUID.fromString(stringValue);
-            }
-            if ("created_at".equals(sortField) || "updated_at".equals(sortField)) {
-                return java.sql.Timestamp.from(java.time.Instant.parse(stringValue));
-            }
-
-            // Handle custom fields
-            try {
-                UUID fieldId = UUID.fromString(sortField);
-                Field field = fields.stream()
-                        .filter(f -> f.getId().equals(fieldId))
-                        .findFirst()
-                        .orElse(null);
-
-                if (field == null) {
-                    throw new FrontendException("Field not found for sorting : " + sortField, false);
-                }
-                return convertStringToFieldType(stringValue, field.getType());
-            } catch (IllegalArgumentException e) {
-                log.warn("Invalid field UUID: {}", sortField);
-                throw new FrontendException("Invalid sort field UUID: " + sortField, false);
-            }
-        } catch (Exception e) {
-            log.warn("Could not convert cursor value '{}' for sort field '{}': {}", stringValue, sortField, e.getMessage());
-            throw new FrontendException("Could not convert cursor value for sort field: " + sortField, false);
+        // Handle system fields
+        if ("id".equals(sortField)) {
+            return requireType(value, UUID.class, sortField);
+        }
+        if ("created_at".equals(sortField) || "updated_at".equals(sortField)) {
+            return Timestamp.from(requireType(value, Instant.class, sortField));
+        }
+        if ("rank".equals(sortField)) {
+            // Bound as real, so it compares exactly with the ts_rank result
+            return requireType(value, Float.class, sortField);
         }
-    }
 
-    /**
-     * Converts a string value to the appropriate field type.
-     */
-    private static Object convertStringToFieldType(String value, FieldType fieldType) {
-
-        //Check if value is not "" for specific field types.
-        switch (fieldType) {
-            case BOOLEAN:
-            case DECIMAL:
-            case DATE:
-            case DATETIME:
-            case LONG:
-                if (value.equals("")) {
-                    throw new RuntimeException("Invalid: String for type " + fieldType + " is empty.");
-                }
+        // Handle custom fields
+        Field field;
+        try {
+            UUID fieldId = UUID.fromString(sortField);
+            field = fields.stream()
+                    .filter(f -> f.getId().equals(fieldId))
+                    .findFirst()
+                    .orElse(null);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid field UUID: {}", sortField);
+            throw new FrontendException("Invalid sort field UUID: " + sortField, false);
+        }
+        if (field == null) {
+            throw new FrontendException("Field not found for sorting : " + sortField, false);
         }
 
-        return switch (fieldType) {
-            case EMAIL, SINGLE_LINE_TEXT, MULTI_LINE_TEXT -> value;
-            case DECIMAL -> new java.math.BigDecimal(value);
-            case LONG -> Long.valueOf(value);
-            case BOOLEAN -> Boolean.parseBoolean(value);
-            case DATE -> java.sql.Date.valueOf(value);
-            case DATETIME -> java.sql.Timestamp.from(java.time.Instant.parse(value));
+        return switch (field.getType()) {
+            case EMAIL, SINGLE_LINE_TEXT, MULTI_LINE_TEXT -> requireType(value, String.class, sortField);
+            case DECIMAL -> requireType(value, BigDecimal.class, sortField);
+            case LONG -> requireType(value, Long.class, sortField);
+            case BOOLEAN -> requireType(value, Boolean.class, sortField);
+            case DATE -> java.sql.Date.valueOf(requireType(value, String.class, sortField));
+            case DATETIME -> Timestamp.from(requireType(value, Instant.class, sortField));
         };
     }
 
+    private static <T> T requireType(Object value, Class<T> type, String sortField) {
+        if (!type.isInstance(value)) {
+            // The field type changed since the cursor was created
+            log.warn("Cursor value of type {} does not match sort field '{}'", value.getClass().getSimpleName(), sortField);
+            throw new FrontendException("Could not convert cursor value for sort field: " + sortField, false);
+        }
+        return type.cast(value);
+    }
+
     /**
      * Gets the database column name for a sort field.
      */
@@ -0,0 +1,82 @@
+package org.ulinda.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.ulinda.dto.CursorInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link CursorCodec} with the JSON cursors it replaced, which were Base64 encoded Jackson output of
+ * CursorInfo with the sort value as a string. Not run by the build; start it with main from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CursorCodecBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CursorCodec codec = new CursorCodec("benchmark-secret");
+
+    private CursorInfo cursor;
+    private CursorInfo jsonCursor;
+    private String encoded;
+    private String jsonEncoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        Instant createdAt = Instant.parse("2024-03-01T12:34:56.123456Z");
+        UUID recordId = UUID.randomUUID();
+        cursor = new CursorInfo(createdAt, recordId, "created_at", "DESC", false);
+        jsonCursor = new CursorInfo(createdAt.toString(), recordId, "created_at", "DESC", false);
+        encoded = codec.encode(cursor);
+        jsonEncoded = encodeJson(jsonCursor);
+    }
+
+    private String encodeJson(CursorInfo cursorInfo) throws Exception {
+        return Base64.getEncoder().encodeToString(objectMapper.writeValueAsString(cursorInfo).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String encodeBinary() {
+        return codec.encode(cursor);
+    }
+
+    @Benchmark
+    public CursorInfo decodeBinary() {
+        return codec.decode(encoded);
+    }
+
+    @Benchmark
+    public String encodeJson() throws Exception {
+        return encodeJson(jsonCursor);
+    }
+
+    @Benchmark
+    public CursorInfo decodeJson() throws Exception {
+        return objectMapper.readValue(new String(Base64.getDecoder().decode(jsonEncoded), StandardCharsets.UTF_8), CursorInfo.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CursorCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,154 @@
+package org.ulinda.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.ulinda.dto.CursorInfo;
+import org.ulinda.utils.CursorUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CursorCodecTest {
+
+    private static final UUID RECORD_ID = UUID.fromString("2f1c7c1e-5b7a-4f0e-9a51-3c6f0d1f2a10");
+    private static final UUID FIELD_ID = UUID.fromString("9b0e3d52-77c4-4a8e-b1d6-0e5c2f7a4b83");
+
+    private final CursorCodec codec = new CursorCodec("test-secret");
+
+    private static CursorInfo cursor(Object value, String sortField, String sortOrder) {
+        return new CursorInfo(value, RECORD_ID, sortField, sortOrder, CursorUtils.isNullsLast(sortOrder));
+    }
+
+    private CursorInfo roundTrip(CursorInfo cursorInfo) {
+        String encoded = codec.encode(cursorInfo);
+        assertNotNull(encoded);
+        return codec.decode(encoded);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ASC", "DESC"})
+    void roundTripsEveryValueType(String sortOrder) {
+        Object[] values = {
+                "some text with ümlauts",
+                "",
+                42L,
+                Long.MIN_VALUE,
+                Instant.parse("2024-03-01T12:34:56.123456Z"),
+                UUID.randomUUID(),
+                0.4213f,
+                new BigDecimal("-12345678901234567890.000123"),
+                BigDecimal.ZERO,
+                true,
+                false,
+        };
+        for (Object value : values) {
+            CursorInfo original = cursor(value, FIELD_ID.toString(), sortOrder);
+            assertEquals(original, roundTrip(original), "value " + value);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ASC", "DESC"})
+    void roundTripsNullSortValue(String sortOrder) {
+        CursorInfo original = cursor(null, FIELD_ID.toString(), sortOrder);
+        CursorInfo decoded = roundTrip(original);
+        assertEquals(original, decoded);
+        assertNull(decoded.getSortFieldValue());
+        assertEquals(RECORD_ID, decoded.getRecordId());
+        // ASC puts null values last and DESC first; the keyset bound after a null cursor depends on it
+        assertEquals(CursorUtils.isNullsLast(sortOrder), decoded.getNullsLast());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"id", "created_at", "updated_at", "rank"})
+    void roundTripsSystemSortFields(String sortField) {
+        Object value = switch (sortField) {
+            case "id" -> RECORD_ID;
+            case "rank" -> 0.5f;
+            default -> Instant.parse("2024-01-02T03:04:05Z");
+        };
+        CursorInfo original = cursor(value, sortField, "DESC");
+        assertEquals(original, roundTrip(original));
+    }
+
+    @Test
+    void keepsTieBreakerAndSortOrder() {
+        CursorInfo decoded = roundTrip(cursor("same value", FIELD_ID.toString(), "DESC"));
+        assertEquals(RECORD_ID, decoded.getRecordId());
+        assertEquals(FIELD_ID.toString(), decoded.getSortField());
+        assertEquals("DESC", decoded.getSortOrder());
+        assertEquals(false, decoded.getNullsLast());
+    }
+
+    @Test
+    void rejectsTamperedCursor() {
+        String encoded = codec.encode(cursor(42L, FIELD_ID.toString(), "ASC"));
+        byte[] bytes = Base64.getUrlDecoder().decode(encoded);
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] tampered = bytes.clone();
+            tampered[i] ^= 1;
+            assertNull(codec.decode(Base64.getUrlEncoder().withoutPadding().encodeToString(tampered)), "byte " + i);
+        }
+    }
+
+    @Test
+    void rejectsCursorSignedWithAnotherKey() {
+        String encoded = new CursorCodec("other-secret").encode(cursor("value", FIELD_ID.toString(), "ASC"));
+        assertNull(codec.decode(encoded));
+    }
+
+    @Test
+    void rejectsTruncatedCursor() {
+        String encoded = codec.encode(cursor("value", FIELD_ID.toString(), "ASC"));
+        assertNull(codec.decode(encoded.substring(0, encoded.length() - 4)));
+        assertNull(codec.decode(encoded.substring(0, 10)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "not base64 !!", "AAAA", "eyJzb3J0RmllbGQiOiJpZCJ9"})
+    void rejectsInvalidCursor(String invalid) {
+        assertNull(codec.decode(invalid));
+    }
+
+    @Test
+    void returnsNullForMissingCursor() {
+        assertNull(codec.encode(null));
+        assertNull(codec.decode(null));
+    }
+
+    @Test
+    void skipsSortValueTooLongToEncode() {
+        assertNull(codec.encode(cursor("x".repeat(0x10000), FIELD_ID.toString(), "ASC")));
+    }
+
+    @Test
+    void sharesStoredKeyWithoutConfiguredSecret() {
+        // Two instances, or one instance before and after a restart, read the same stored key
+        ClusterSettingsService clusterSettingsService = mock(ClusterSettingsService.class);
+        when(clusterSettingsService.getOrCreate(eq("cursor.key"), any()))
+                .thenReturn(Base64.getEncoder().encodeToString(new byte[32]));
+        CursorCodec first = new CursorCodec("", clusterSettingsService);
+        CursorCodec second = new CursorCodec("", clusterSettingsService);
+
+        CursorInfo original = cursor("value", FIELD_ID.toString(), "ASC");
+        assertEquals(original, second.decode(first.encode(original)));
+    }
+
+    @Test
+    void failsWithoutSecretOrStoredKey() {
+        CursorCodec unkeyed = new CursorCodec("");
+        assertThrows(IllegalStateException.class, () -> unkeyed.decode("AAAA"));
+    }
+}
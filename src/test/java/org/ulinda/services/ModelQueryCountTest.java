@@ -0,0 +1,229 @@
+package org.ulinda.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ulinda.dto.GetModelResponse;
+import org.ulinda.dto.GetModelsResponse;
+import org.ulinda.dto.GetUserModelPermissionsResponse;
+import org.ulinda.dto.ModelDto;
+import org.ulinda.entities.Field;
+import org.ulinda.entities.Model;
+import org.ulinda.entities.ModelLink;
+import org.ulinda.entities.User;
+import org.ulinda.entities.UserModelPermission;
+import org.ulinda.enums.FieldType;
+import org.ulinda.enums.ModelPermission;
+import org.ulinda.repositories.FieldRepository;
+import org.ulinda.repositories.ModelLinkRepository;
+import org.ulinda.repositories.ModelRepository;
+import org.ulinda.repositories.UserModelPermissionRepository;
+import org.ulinda.repositories.UserRepository;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the model listings run a fixed number of queries whatever the number of models, fields, links and
+ * permissions: the three catalog loads and the permission snapshot when cold, and none when warm. Every data
+ * access goes through a mock, so each call on one of them is one query.
+ */
+class ModelQueryCountTest {
+
+    private final UUID userId = UUID.randomUUID();
+
+    private ModelRepository modelRepository;
+    private FieldRepository fieldRepository;
+    private ModelLinkRepository modelLinkRepository;
+    private JdbcTemplate jdbcTemplate;
+    private UserRepository userRepository;
+    private UserModelPermissionRepository userModelPermissionRepository;
+
+    private ModelService modelService;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        modelRepository = mock(ModelRepository.class);
+        fieldRepository = mock(FieldRepository.class);
+        modelLinkRepository = mock(ModelLinkRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        userRepository = mock(UserRepository.class);
+        userModelPermissionRepository = mock(UserModelPermissionRepository.class);
+        CacheInvalidationBus cacheInvalidationBus = mock(CacheInvalidationBus.class);
+
+        ModelMetadataCache modelMetadataCache = new ModelMetadataCache();
+        ReflectionTestUtils.setField(modelMetadataCache, "modelRepository", modelRepository);
+        ReflectionTestUtils.setField(modelMetadataCache, "fieldRepository", fieldRepository);
+        ReflectionTestUtils.setField(modelMetadataCache, "modelLinkRepository", modelLinkRepository);
+        ReflectionTestUtils.setField(modelMetadataCache, "cacheInvalidationBus", cacheInvalidationBus);
+
+        UserPermissionCache userPermissionCache = new UserPermissionCache();
+        ReflectionTestUtils.setField(userPermissionCache, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(userPermissionCache, "cacheInvalidationBus", cacheInvalidationBus);
+        ReflectionTestUtils.setField(userPermissionCache, "maxSize", 100);
+
+        modelService = new ModelService();
+        ReflectionTestUtils.setField(modelService, "modelMetadataCache", modelMetadataCache);
+        ReflectionTestUtils.setField(modelService, "userPermissionCache", userPermissionCache);
+        ReflectionTestUtils.setField(modelService, "jdbcTemplate", jdbcTemplate);
+
+        userService = new UserService(userRepository, null, null, userModelPermissionRepository, modelMetadataCache,
+                null, null, null, null, userPermissionCache);
+    }
+
+    /**
+     * Creates the models with two fields each, links every model to the next one, and gives the user
+     * VIEW_RECORDS on every other model.
+     */
+    private List<Model> givenModels(int modelCount) {
+        List<Model> models = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        List<ModelLink> links = new ArrayList<>();
+        List<UserModelPermission> permissions = new ArrayList<>();
+        for (int i = 0; i < modelCount; i++) {
+            Model model = new Model();
+            model.setId(UUID.randomUUID());
+            model.setName("Model " + i);
+            models.add(model);
+            for (int j = 0; j < 2; j++) {
+                Field field = new Field();
+                field.setId(UUID.randomUUID());
+                field.setModelId(model.getId());
+                field.setName("Field " + j);
+                field.setType(FieldType.SINGLE_LINE_TEXT);
+                fields.add(field);
+            }
+            if (i > 0) {
+                ModelLink link = new ModelLink();
+                link.setId(UUID.randomUUID());
+                link.setModel1Id(models.get(i - 1).getId());
+                link.setModel2Id(model.getId());
+                links.add(link);
+            }
+            if (i % 2 == 0) {
+                UserModelPermission permission = new UserModelPermission();
+                permission.setId(UUID.randomUUID());
+                permission.setUserId(userId);
+                permission.setModelId(model.getId());
+                permission.setPermission(ModelPermission.VIEW_RECORDS);
+                permissions.add(permission);
+            }
+        }
+        when(modelRepository.findAll()).thenReturn(models);
+        when(fieldRepository.findAll()).thenReturn(fields);
+        when(modelLinkRepository.findAll()).thenReturn(links);
+
+        User user = new User();
+        user.setId(userId);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userModelPermissionRepository.findByUserId(userId)).thenReturn(permissions);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (UserModelPermission permission : permissions) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getBoolean(1)).thenReturn(false);
+                when(rs.getBoolean(2)).thenReturn(false);
+                when(rs.getObject(3, UUID.class)).thenReturn(permission.getModelId());
+                when(rs.getString(4)).thenReturn(permission.getPermission().name());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(userId));
+        return models;
+    }
+
+    private int queriesSince(int before) {
+        return queries() - before;
+    }
+
+    private int queries() {
+        int count = 0;
+        for (Object dataAccess : List.of(modelRepository, fieldRepository, modelLinkRepository, jdbcTemplate,
+                userRepository, userModelPermissionRepository)) {
+            count += Mockito.mockingDetails(dataAccess).getInvocations().size();
+        }
+        return count;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    void modelListRunsFixedQueries(int modelCount) {
+        givenModels(modelCount);
+
+        int before = queries();
+        GetModelsResponse response = modelService.getModels(userId);
+        assertEquals(4, queriesSince(before));
+        assertEquals((modelCount + 1) / 2, response.getModels().size());
+
+        before = queries();
+        modelService.getModels(userId);
+        assertEquals(0, queriesSince(before));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    void modelListIsOrderedByName(int modelCount) {
+        List<Model> models = new ArrayList<>(givenModels(modelCount));
+        Collections.shuffle(models);
+        when(modelRepository.findAll()).thenReturn(models);
+
+        List<String> names = modelService.getModels(userId).getModels().stream().map(ModelDto::getName).toList();
+        assertEquals(names.stream().sorted().toList(), names);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 10, 200})
+    void modelDetailRunsNoQueriesWhenWarm(int modelCount) {
+        List<Model> models = givenModels(modelCount);
+        modelService.getModels(userId);
+
+        int before = queries();
+        GetModelResponse response = modelService.getModel(models.get(2).getId(), userId);
+        assertEquals(0, queriesSince(before));
+        // The link from the previous model is listed without its name; the next model is not viewable
+        assertEquals(1, response.getModelLinkTargets().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    void userModelPermissionsRunFixedQueries(int modelCount) {
+        givenModels(modelCount);
+
+        int before = queries();
+        GetUserModelPermissionsResponse response = userService.getUserModelPermissions(userId);
+        // The user, its permission rows and the three catalog loads
+        assertEquals(5, queriesSince(before));
+        assertEquals((modelCount + 1) / 2, response.getUserModelPermissions().size());
+
+        before = queries();
+        userService.getUserModelPermissions(userId);
+        assertEquals(2, queriesSince(before));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    void modelLinkListRunsOneQuery(int modelCount) {
+        givenModels(modelCount);
+
+        int before = queries();
+        modelService.getModelLinks();
+        assertEquals(1, queriesSince(before));
+    }
+}
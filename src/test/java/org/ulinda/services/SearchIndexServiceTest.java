@@ -0,0 +1,119 @@
+package org.ulinda.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ulinda.entities.Field;
+import org.ulinda.enums.FieldType;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The index is written from the field columns only, so records tables need no search column: tables created
+ * before full text search existed are indexed without a migration.
+ */
+class SearchIndexServiceTest {
+
+    private final UUID modelId = UUID.fromString("6a0d2b8e-3f41-4c5a-9e77-1b2c3d4e5f60");
+
+    private JdbcTemplate jdbcTemplate;
+    private ModelMetadataCache modelMetadataCache;
+    private SearchIndexService searchIndexService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        modelMetadataCache = mock(ModelMetadataCache.class);
+        searchIndexService = new SearchIndexService();
+        ReflectionTestUtils.setField(searchIndexService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(searchIndexService, "modelMetadataCache", modelMetadataCache);
+        ReflectionTestUtils.setField(searchIndexService, "indexBuildExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(searchIndexService, "fullTextConfig", "simple");
+        ReflectionTestUtils.setField(searchIndexService, "backfillBatchSize", 1000);
+        ReflectionTestUtils.setField(searchIndexService, "maxHitsPerModel", 50);
+        ReflectionTestUtils.setField(searchIndexService, "maxCandidates", 500);
+    }
+
+    private static Field field(FieldType type) {
+        Field field = new Field();
+        field.setId(UUID.randomUUID());
+        field.setType(type);
+        return field;
+    }
+
+    private static String column(Field field) {
+        return "field_" + field.getId().toString().replace("-", "_");
+    }
+
+    @Test
+    void indexesTextColumnsOfTableWithoutSearchColumn() {
+        Field name = field(FieldType.SINGLE_LINE_TEXT);
+        Field email = field(FieldType.EMAIL);
+        Field amount = field(FieldType.LONG);
+        when(modelMetadataCache.getFields(modelId)).thenReturn(List.of(name, amount, email));
+        UUID recordId = UUID.randomUUID();
+
+        searchIndexService.indexRecord(modelId, recordId);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).update(sql.capture(), eq(modelId), eq(recordId));
+        assertFalse(sql.getValue().contains("search_vector"));
+        assertTrue(sql.getValue().contains("to_tsvector('simple'::regconfig, coalesce(" + column(name) + ", '') || ' ' || coalesce(" + column(email) + ", ''))"));
+        assertFalse(sql.getValue().contains(column(amount)));
+    }
+
+    @Test
+    void indexesEmptyDocumentForModelWithoutTextFields() {
+        when(modelMetadataCache.getFields(modelId)).thenReturn(List.of(field(FieldType.DATE)));
+
+        searchIndexService.indexRecord(modelId, UUID.randomUUID());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).update(sql.capture(), eq(modelId), any(UUID.class));
+        assertTrue(sql.getValue().contains("to_tsvector('simple'::regconfig, '')"));
+    }
+
+    @Test
+    void refreshRewritesOnlyChangedDocumentsFromFieldColumns() {
+        Field name = field(FieldType.MULTI_LINE_TEXT);
+        when(modelMetadataCache.getFields(modelId)).thenReturn(List.of(name));
+        when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), any(), any(), any())).thenReturn(List.of());
+
+        // Without a transaction the refresh runs right away, here on the calling thread
+        searchIndexService.scheduleRefresh(modelId);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).queryForList(sql.capture(), eq(UUID.class), any(), eq(1000), eq(modelId));
+        assertFalse(sql.getValue().contains("search_vector"));
+        assertTrue(sql.getValue().contains("coalesce(" + column(name) + ", '')"));
+        assertTrue(sql.getValue().contains("IS DISTINCT FROM EXCLUDED.document"));
+    }
+
+    @Test
+    void ranksOnlyLimitedCandidates() {
+        UUID userId = UUID.randomUUID();
+
+        searchIndexService.search(userId, "common term", 10);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class), eq("common term"), eq(userId), eq(userId), eq(500), eq(10));
+        // The limit applies to the index match, before any rank is computed
+        String candidates = sql.getValue().substring(0, sql.getValue().indexOf("LIMIT ?"));
+        assertTrue(candidates.contains("s.document @@ q.query"));
+        assertFalse(candidates.contains("ts_rank"));
+    }
+}
@@ -0,0 +1,103 @@
+package org.ulinda.utils;
+
+import org.junit.jupiter.api.Test;
+import org.ulinda.dto.CursorInfo;
+import org.ulinda.dto.RecordDto;
+import org.ulinda.entities.Field;
+import org.ulinda.enums.FieldType;
+import org.ulinda.exceptions.FrontendException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorUtilsTest {
+
+    private static Field field(UUID id, FieldType type) {
+        Field field = new Field();
+        field.setId(id);
+        field.setType(type);
+        return field;
+    }
+
+    @Test
+    void nullsComeLastAscendingAndFirstDescending() {
+        assertTrue(CursorUtils.isNullsLast("ASC"));
+        assertTrue(CursorUtils.isNullsLast("asc"));
+        assertFalse(CursorUtils.isNullsLast("DESC"));
+        assertFalse(CursorUtils.isNullsLast("desc"));
+    }
+
+    @Test
+    void createsCursorWithNullSortValue() {
+        UUID fieldId = UUID.randomUUID();
+        RecordDto record = new RecordDto();
+        record.setId(UUID.randomUUID());
+        record.setFieldValues(new HashMap<>());
+
+        CursorInfo cursorInfo = CursorUtils.createCursorFromRecord(record, fieldId.toString(), "DESC",
+                List.of(field(fieldId, FieldType.LONG)));
+
+        assertNull(cursorInfo.getSortFieldValue());
+        assertEquals(record.getId(), cursorInfo.getRecordId());
+        assertEquals("DESC", cursorInfo.getSortOrder());
+        assertFalse(cursorInfo.getNullsLast());
+    }
+
+    @Test
+    void createsCursorFromCustomFieldValue() {
+        UUID fieldId = UUID.randomUUID();
+        RecordDto record = new RecordDto();
+        record.setId(UUID.randomUUID());
+        record.setFieldValues(new HashMap<>());
+        record.getFieldValues().put(fieldId, 7L);
+
+        CursorInfo cursorInfo = CursorUtils.createCursorFromRecord(record, fieldId.toString(), "ASC",
+                List.of(field(fieldId, FieldType.LONG)));
+
+        assertEquals(7L, cursorInfo.getSortFieldValue());
+        assertTrue(cursorInfo.getNullsLast());
+    }
+
+    @Test
+    void convertsCursorValuesToBoundTypes() {
+        UUID decimalField = UUID.randomUUID();
+        UUID dateField = UUID.randomUUID();
+        UUID dateTimeField = UUID.randomUUID();
+        List<Field> fields = List.of(field(decimalField, FieldType.DECIMAL), field(dateField, FieldType.DATE),
+                field(dateTimeField, FieldType.DATETIME));
+        Instant instant = Instant.parse("2024-05-06T07:08:09Z");
+
+        assertEquals(new BigDecimal("1.50"), CursorUtils.convertCursorValueForComparison(new BigDecimal("1.50"), decimalField.toString(), fields));
+        assertEquals(java.sql.Date.valueOf("2024-05-06"), CursorUtils.convertCursorValueForComparison("2024-05-06", dateField.toString(), fields));
+        assertEquals(Timestamp.from(instant), CursorUtils.convertCursorValueForComparison(instant, dateTimeField.toString(), fields));
+        assertEquals(Timestamp.from(instant), CursorUtils.convertCursorValueForComparison(instant, "created_at", fields));
+    }
+
+    @Test
+    void rejectsCursorValueOfChangedFieldType() {
+        UUID fieldId = UUID.randomUUID();
+        List<Field> fields = List.of(field(fieldId, FieldType.LONG));
+        assertThrows(FrontendException.class, () -> CursorUtils.convertCursorValueForComparison("text", fieldId.toString(), fields));
+    }
+
+    @Test
+    void rejectsNullCursorValueForComparison() {
+        // Null values are handled by the AFTER_NULL and NULL_VALUES bounds, never bound as a comparison value
+        assertThrows(FrontendException.class, () -> CursorUtils.convertCursorValueForComparison(null, "created_at", List.of()));
+    }
+
+    @Test
+    void rejectsUnknownSortField() {
+        assertThrows(FrontendException.class, () -> CursorUtils.convertCursorValueForComparison(1L, UUID.randomUUID().toString(), List.of()));
+    }
+}